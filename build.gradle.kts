@@ -2,10 +2,45 @@
  * NOTE: This is entirely optional and basics can be done in `settings.gradle.kts`
  */
 
+plugins {
+    // Microbenchmarks under src/jmh; run with `./gradlew jmh`.
+    id("me.champeau.jmh") version "0.7.3"
+}
+
 repositories {
     // Any external repositories besides: MavenLocal, MavenCentral, HytaleMaven, and CurseMaven
 }
 
 dependencies {
     // Any external dependency you also want to include
-}
\ No newline at end of file
+}
+
+configurations {
+    // Benchmarks drive plugin classes directly, so they need the server API the plugin compiles against.
+    named("jmhCompileClasspath") { extendsFrom(getByName("compileOnly")) }
+    named("jmhRuntimeClasspath") { extendsFrom(getByName("compileOnly")) }
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
+// Headless load simulation; run with `./gradlew simulate --args="players=2000 worlds=8"`.
+tasks.register<JavaExec>("simulate") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("games.austale.zonepvpcontrol.LoadSimulator")
+}
+
+// Offline replay of a recorded zone trace; run with `./gradlew replay --args="trace=<file>"`.
+tasks.register<JavaExec>("replay") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("games.austale.zonepvpcontrol.ZoneTraceReplay")
+}
+
+// Brute-force correctness checks of the benchmarked structures; run with `./gradlew bruteForceCheck`.
+tasks.register<JavaExec>("bruteForceCheck") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("games.austale.zonepvpcontrol.BruteForceCheck")
+}
@@ -0,0 +1,214 @@
+package games.austale.zonepvpcontrol;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Checks the structures the benchmarks measure against brute-force references on random inputs,
+ * so a benchmark never reports the speed of a wrong answer:
+ * <ul>
+ *     <li>{@link RegionIndex} lookups and boundary distances against a linear scan of the same
+ *     regions, at each region count of {@link RegionLookupBenchmark};</li>
+ *     <li>{@link TimingWheel} expiry against each timer's requested deadline, across random
+ *     schedules, cancels and advances, including delays and stalls longer than one turn;</li>
+ *     <li>a baked {@link ZoneRaster} against the sampler it was baked from, and its rejection of
+ *     another fingerprint or cell size.</li>
+ * </ul>
+ * Needs the server jar on its classpath like the benchmarks. Run with {@code ./gradlew
+ * bruteForceCheck}; exits with status 1 on the first mismatch.
+ */
+public final class BruteForceCheck {
+
+    private static final int REGION_POINTS = 100_000;
+    // Boundary distances scan every region, so only every few points are checked.
+    private static final int DISTANCE_STRIDE = 16;
+    private static final double DISTANCE_LIMIT = 512.0;
+    private static final int[] REGION_COUNTS = {10, 100, 1000, 10000};
+    private static final int TIMERS = 2000;
+    private static final int TIMER_STEPS = 200_000;
+    private static final int RASTER_RADIUS = 3000;
+    private static final int RASTER_CELL_SIZE = 4;
+    private static final int RASTER_POINTS = 100_000;
+
+    private BruteForceCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        try {
+            for (int regions : REGION_COUNTS) {
+                checkRegionIndex(regions);
+            }
+            checkTimingWheel();
+            checkZoneRaster();
+        } catch (AssertionError e) {
+            System.err.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    private static void checkRegionIndex(int regionCount) {
+        SplittableRandom random = new SplittableRandom(23L);
+        List<ZonePvpControlConfig.PvpRegionConfig> configs = RegionLookupBenchmark.scatteredRegions(regionCount, random);
+        RegionIndex index = ZoneRules.compile(Map.of(), Map.of(), false, null, 0.0, 0.0, null, configs)
+                .regionsFor(null);
+        List<PvpRegion> regions = new ArrayList<>();
+        for (ZonePvpControlConfig.PvpRegionConfig config : configs) {
+            regions.add(PvpRegion.compile(config));
+        }
+        double extent = RegionLookupBenchmark.extent(regionCount);
+
+        for (int i = 0; i < REGION_POINTS; i++) {
+            double x;
+            double z;
+            if ((i & 1) == 0) {
+                x = (random.nextDouble() * 2.0 - 1.0) * extent;
+                z = (random.nextDouble() * 2.0 - 1.0) * extent;
+            } else {
+                // Half the points fall in or around a region, where its edges are.
+                PvpRegion near = regions.get(random.nextInt(regions.size()));
+                double marginX = (near.maxX - near.minX) * 0.1;
+                double marginZ = (near.maxZ - near.minZ) * 0.1;
+                x = near.minX - marginX + random.nextDouble() * (near.maxX - near.minX + 2.0 * marginX);
+                z = near.minZ - marginZ + random.nextDouble() * (near.maxZ - near.minZ + 2.0 * marginZ);
+            }
+
+            // Highest priority wins, then the first in config order.
+            PvpRegion expected = null;
+            for (PvpRegion region : regions) {
+                if (region.contains(x, z) && (expected == null || region.getPriority() > expected.getPriority())) {
+                    expected = region;
+                }
+            }
+            PvpRegion actual = index.regionAt(x, z);
+            String expectedName = expected == null ? null : expected.getName();
+            String actualName = actual == null ? null : actual.getName();
+            check(expectedName == null ? actualName == null : expectedName.equals(actualName),
+                    regionCount + " regions: regionAt(" + x + ", " + z + ") is " + actualName
+                            + ", expected " + expectedName);
+
+            if (i % DISTANCE_STRIDE == 0) {
+                double nearest = DISTANCE_LIMIT;
+                for (PvpRegion region : regions) {
+                    nearest = Math.min(nearest, region.distanceToBoundary(x, z));
+                }
+                double distance = index.distanceToNearestBoundary(x, z, DISTANCE_LIMIT);
+                check(distance == nearest, regionCount + " regions: distanceToNearestBoundary(" + x + ", " + z
+                        + ") is " + distance + ", expected " + nearest);
+            }
+        }
+        System.out.println("RegionIndex: " + regionCount + " regions, " + REGION_POINTS + " points OK");
+    }
+
+    private static void checkTimingWheel() {
+        SplittableRandom random = new SplittableRandom(31L);
+        long origin = 1_000_000_000L;
+        TimingWheel wheel = new TimingWheel(origin);
+        TimingWheel.Timer[] timers = new TimingWheel.Timer[TIMERS];
+        // Deadline of each timer the reference expects to be running, or Long.MIN_VALUE.
+        long[] deadlines = new long[TIMERS];
+        for (int i = 0; i < TIMERS; i++) {
+            timers[i] = new TimingWheel.Timer();
+            deadlines[i] = Long.MIN_VALUE;
+        }
+
+        long now = origin;
+        for (int step = 0; step < TIMER_STEPS; step++) {
+            int action = random.nextInt(10);
+            int i = random.nextInt(TIMERS);
+            if (action < 5) {
+                // Mostly combat-tag and spawn-protection lengths, some beyond one turn of the ring.
+                long delay = random.nextInt(8) == 0
+                        ? random.nextLong(TimingWheel.SLOT_NANOS * TimingWheel.SLOTS * 3L)
+                        : random.nextLong(30_000_000_000L);
+                wheel.schedule(timers[i], now, delay);
+                long deadline = timers[i].getDeadlineNanos();
+                check(deadline >= now + delay && deadline <= now + delay + TimingWheel.SLOT_NANOS,
+                        "timer scheduled at " + now + " for " + delay + " has deadline " + deadline);
+                deadlines[i] = deadline;
+            } else if (action < 6) {
+                wheel.cancel(timers[i]);
+                deadlines[i] = Long.MIN_VALUE;
+            } else {
+                // Ticks of a few milliseconds, with the odd stall longer than one turn.
+                now += random.nextInt(1000) == 0
+                        ? random.nextLong(TimingWheel.SLOT_NANOS * TimingWheel.SLOTS * 2L)
+                        : random.nextLong(100_000_000L);
+                wheel.advance(now);
+                int running = 0;
+                for (int t = 0; t < TIMERS; t++) {
+                    if (deadlines[t] != Long.MIN_VALUE && now >= deadlines[t]) {
+                        deadlines[t] = Long.MIN_VALUE;
+                    }
+                    boolean expected = deadlines[t] != Long.MIN_VALUE;
+                    check(timers[t].isRunning() == expected, "timer " + t + " is "
+                            + (expected ? "expired" : "running") + " at " + now);
+                    running += expected ? 1 : 0;
+                }
+                check(wheel.size() == running, "wheel holds " + wheel.size() + " timers, expected " + running);
+            }
+        }
+        System.out.println("TimingWheel: " + TIMERS + " timers, " + TIMER_STEPS + " steps OK");
+    }
+
+    private static void checkZoneRaster() throws IOException {
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        StandInZoneSampler sampler = new StandInZoneSampler(zoneRegistry);
+        long fingerprint = ZoneRaster.fingerprint("StandIn", RASTER_RADIUS, sampler, zoneRegistry);
+        Path directory = Files.createTempDirectory("zonepvp-raster");
+        try {
+            Path file = ZoneRaster.fileFor(directory, 7, fingerprint);
+            ZoneRaster.bake(file, 7, fingerprint, RASTER_CELL_SIZE, RASTER_RADIUS, sampler, zoneRegistry);
+            // Open against a fresh registry, as another server process would.
+            ZoneRegistry openRegistry = new ZoneRegistry();
+            ZoneRaster raster = ZoneRaster.open(file, 7, fingerprint, RASTER_CELL_SIZE, RASTER_RADIUS, openRegistry);
+            check(raster != null, "baked raster did not open");
+            check(ZoneRaster.open(file, 7, fingerprint + 1, RASTER_CELL_SIZE, RASTER_RADIUS, openRegistry) == null,
+                    "raster opened with another fingerprint");
+            check(ZoneRaster.open(file, 7, fingerprint, RASTER_CELL_SIZE * 2, RASTER_RADIUS, openRegistry) == null,
+                    "raster opened with another cell size");
+
+            SplittableRandom random = new SplittableRandom(43L);
+            for (int i = 0; i < RASTER_POINTS; i++) {
+                // Points up to a tenth beyond the baked area, which reads as no zone.
+                double x = (random.nextDouble() * 2.2 - 1.1) * RASTER_RADIUS;
+                double z = (random.nextDouble() * 2.2 - 1.1) * RASTER_RADIUS;
+                int cellX = Math.floorDiv((int) Math.floor(x), RASTER_CELL_SIZE);
+                int cellZ = Math.floorDiv((int) Math.floor(z), RASTER_CELL_SIZE);
+                String expected = null;
+                if (cellX >= Math.floorDiv(-RASTER_RADIUS, RASTER_CELL_SIZE)
+                        && cellX <= Math.floorDiv(RASTER_RADIUS - 1, RASTER_CELL_SIZE)
+                        && cellZ >= Math.floorDiv(-RASTER_RADIUS, RASTER_CELL_SIZE)
+                        && cellZ <= Math.floorDiv(RASTER_RADIUS - 1, RASTER_CELL_SIZE)) {
+                    // Each cell holds the zone at its center.
+                    int zoneId = sampler.sampleZoneId((cellX + 0.5) * RASTER_CELL_SIZE, (cellZ + 0.5) * RASTER_CELL_SIZE);
+                    expected = zoneId == ZoneRegistry.NO_ZONE ? null : zoneRegistry.zoneName(zoneId);
+                }
+                int zoneId = raster.zoneIdAt(x, z);
+                String actual = zoneId == ZoneRegistry.NO_ZONE ? null : openRegistry.zoneName(zoneId);
+                check(expected == null ? actual == null : expected.equals(actual),
+                        "raster zone at (" + x + ", " + z + ") is " + actual + ", expected " + expected);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        System.out.println("ZoneRaster: radius " + RASTER_RADIUS + ", " + RASTER_POINTS + " points OK");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
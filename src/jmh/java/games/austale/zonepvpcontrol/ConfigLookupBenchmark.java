@@ -0,0 +1,88 @@
+package games.austale.zonepvpcontrol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the config lookups made on hot paths: compiled {@link ZoneRules} by name and the
+ * {@link GroupRuleTable} by group id.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigLookupBenchmark {
+
+    // Mixed case and unknown names, as they arrive from zones, worlds and permission groups.
+    private static final String[] GROUP_NAMES = {"Zone1", "zone2", "ZONE3", "Zone4", "Zone5", "Ocean"};
+    private static final String[] WORLD_NAMES = {"default", "Default", "arena", "creative"};
+    private static final String[] PERMISSION_GROUPS = {"Adventure", "op", " Admin ", "moderator"};
+
+    private ZoneRules rules;
+    private GroupRuleTable groupRules;
+    private int groupCount;
+
+    @Setup
+    public void setup() {
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        new StandInZoneSampler(zoneRegistry);
+        rules = new ZonePvpControlConfig().getRules();
+        groupRules = GroupRuleTable.build(rules, zoneRegistry);
+        groupCount = zoneRegistry.groupCount();
+    }
+
+    @Benchmark
+    public void pvpZoneEnabledByName(Blackhole blackhole) {
+        for (String name : GROUP_NAMES) {
+            blackhole.consume(rules.isPvpZoneEnabled(name));
+        }
+    }
+
+    @Benchmark
+    public void dropModeByName(Blackhole blackhole) {
+        for (String name : GROUP_NAMES) {
+            blackhole.consume(rules.getPvpDropMode(name));
+        }
+    }
+
+    @Benchmark
+    public void worldEnabled(Blackhole blackhole) {
+        for (String name : WORLD_NAMES) {
+            blackhole.consume(rules.isWorldEnabled(name));
+        }
+    }
+
+    @Benchmark
+    public void operatorGroup(Blackhole blackhole) {
+        for (String name : PERMISSION_GROUPS) {
+            blackhole.consume(rules.isOperatorGroup(name));
+        }
+    }
+
+    @Benchmark
+    public void pvpGroupById(Blackhole blackhole) {
+        for (int group = 0; group < groupCount; group++) {
+            blackhole.consume(groupRules.isPvpGroup(group));
+        }
+    }
+
+    @Benchmark
+    public void dropModeById(Blackhole blackhole) {
+        for (int group = 0; group < groupCount; group++) {
+            blackhole.consume(groupRules.dropMode(group));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package games.austale.zonepvpcontrol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of the PvP damage decision made for every player-vs-player hit, with and without the
+ * asynchronous audit log recording it, through the same decision and audit calls as the damage
+ * system.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DamageDecisionBenchmark {
+
+    private static final int PLAYERS = 1000;
+    private static final int HITS = 4096;
+
+    @Param({"OFF", "BLOCKED", "ALL"})
+    ZonePvpControlConfig.PvpAuditLevel auditLevel;
+
+    private StandInPlayers standIns;
+    private final int[] attackers = new int[HITS];
+    private final int[] targets = new int[HITS];
+    private int cursor;
+    private Path auditDirectory;
+    private PvpAuditLog auditLog;
+
+    @Setup
+    public void setup() throws IOException {
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        StandInZoneSampler sampler = new StandInZoneSampler(zoneRegistry);
+        ZoneEvaluator evaluator = new ZoneEvaluator(sampler, null, zoneRegistry);
+        GroupRuleTable groupRules = GroupRuleTable.build(new ZonePvpControlConfig().getRules(), zoneRegistry);
+        standIns = new StandInPlayers(PLAYERS, StandInZoneSampler.RING_WIDTH * 4.0, 7L);
+        for (int i = 0; i < PLAYERS; i++) {
+            evaluator.evaluate(standIns.states[i], null, standIns.x[i], standIns.z[i], groupRules);
+        }
+
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int i = 0; i < HITS; i++) {
+            attackers[i] = random.nextInt(PLAYERS);
+            targets[i] = random.nextInt(PLAYERS);
+        }
+
+        if (auditLevel != ZonePvpControlConfig.PvpAuditLevel.OFF) {
+            auditDirectory = Files.createTempDirectory("zonepvp-audit");
+            auditLog = new PvpAuditLog(auditDirectory, 8192, 10L * 1024L * 1024L, 2, zoneRegistry,
+                    playerId -> false);
+            auditLog.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (auditLog == null) {
+            return;
+        }
+        auditLog.close();
+        try (Stream<Path> files = Files.walk(auditDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean decide() {
+        int hit = cursor++ & (HITS - 1);
+        int attacker = attackers[hit];
+        int target = targets[hit];
+        ZoneState attackerState = standIns.states[attacker];
+        ZoneState targetState = standIns.states[target];
+        boolean blocked = !PvpDecisions.isPvpAllowed(attackerState, targetState);
+        if (PvpDecisions.isAudited(auditLevel, auditLog, blocked)) {
+            PvpDecisions.audit(auditLog, standIns.ids[attacker], standIns.ids[target], attackerState, targetState,
+                    blocked);
+        }
+        return blocked;
+    }
+}
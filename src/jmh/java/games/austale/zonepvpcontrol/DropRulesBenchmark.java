@@ -0,0 +1,73 @@
+package games.austale.zonepvpcontrol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving PvP death drops as done by the plugin's death drop system, up to the point of
+ * writing the result into the death component.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DropRulesBenchmark {
+
+    private static final int PLAYERS = 1000;
+    private static final int DEATHS = 4096;
+
+    private StandInPlayers standIns;
+    private ZoneRules rules;
+    private GroupRuleTable groupRules;
+    private final int[] victims = new int[DEATHS];
+    private final int[] attackers = new int[DEATHS];
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        StandInZoneSampler sampler = new StandInZoneSampler(zoneRegistry);
+        ZoneEvaluator evaluator = new ZoneEvaluator(sampler, null, zoneRegistry);
+        // Mix of drop modes so every branch is taken.
+        rules = ZoneRules.compile(Map.of("Zone1", false, "Zone2", true, "Zone3", true, "Zone4", true),
+                Map.of("Zone2", "PARTIAL", "Zone3", "FULL"), false, null, 50.0, 10.0, null, null);
+        groupRules = GroupRuleTable.build(rules, zoneRegistry);
+        standIns = new StandInPlayers(PLAYERS, StandInZoneSampler.RING_WIDTH * 4.0, 13L);
+        for (int i = 0; i < PLAYERS; i++) {
+            evaluator.evaluate(standIns.states[i], null, standIns.x[i], standIns.z[i], groupRules);
+        }
+
+        SplittableRandom random = new SplittableRandom(17L);
+        for (int i = 0; i < DEATHS; i++) {
+            victims[i] = random.nextInt(PLAYERS);
+            attackers[i] = random.nextInt(PLAYERS);
+        }
+    }
+
+    @Benchmark
+    public void resolveDrops(Blackhole blackhole) {
+        int death = cursor++ & (DEATHS - 1);
+        ZonePvpControlConfig.PvpDropMode dropMode = PvpDecisions.resolveDropMode(standIns.states[victims[death]],
+                standIns.states[attackers[death]], groupRules);
+        blackhole.consume(dropMode);
+        if (dropMode == ZonePvpControlConfig.PvpDropMode.PARTIAL) {
+            blackhole.consume(rules.getPartialDropAmountPercent());
+            blackhole.consume(rules.getPartialDropDurabilityPercent());
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import games.austale.zonepvpcontrol.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load simulation of the plugin's per-tick work across several worlds, with no server
+ * running: synthetic players move through stand-in zone layouts while the zone tracking loop,
+ * PvP damage decisions, combat tags and drop rules run against them on a simulated clock.
+ * <p>
+ * The tracking loop follows the plugin's and shares its {@link ZoneTrackingSchedule}: in POLL mode
+ * each world's players are checked once per second in time-budgeted round-robin slices, or, with
+ * {@code zone_evaluation_threads} above 0, snapshotted within the time budget and evaluated on a
+ * pool of that many threads; in TICK mode due players are checked every tick up to the per-tick
+ * budget, with deferred players going first on the next tick. Worlds are simulated one after
+ * another on one thread, and each world tick is timed on its own, as it would run on its own world
+ * thread; off-thread evaluation is not part of a tick's time. Zone state is the plugin's entity
+ * component, so like the benchmarks the simulator needs the server jar on its classpath.
+ * <p>
+ * Run with {@code ./gradlew simulate --args="players=2000 worlds=8 seconds=60"}. Options, as
+ * {@code key=value}: {@code players}, {@code worlds}, {@code seconds}, {@code warmup} (seconds),
+ * {@code tps}, {@code hits} (PvP hits per second per world), {@code kills} (share of allowed hits
+ * that kill), {@code idle} and {@code skirmish} (shares of players per movement model, the rest
+ * walk), {@code seed} and {@code config} (a config.json to use instead of the defaults).
+ */
+public final class LoadSimulator {
+
+    private static final long POLL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    // PvP borders of the stand-in layout: Zone1 is PvE, the rings beyond it PvP.
+    private static final double[] BORDER_RADII = {StandInZoneSampler.RING_WIDTH};
+
+    private LoadSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int playerCount = intOption(options, "players", 2000);
+        int worldCount = intOption(options, "worlds", 8);
+        int seconds = intOption(options, "seconds", 60);
+        int warmupSeconds = intOption(options, "warmup", 10);
+        int tps = intOption(options, "tps", 30);
+        double hitsPerSecond = doubleOption(options, "hits", 20.0);
+        double killShare = doubleOption(options, "kills", 0.05);
+        double idleShare = doubleOption(options, "idle", 0.3);
+        double skirmishShare = doubleOption(options, "skirmish", 0.2);
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        ZonePvpControlConfig config = options.containsKey("config")
+                ? ZonePvpControlConfig.read(Path.of(options.get("config")))
+                : new ZonePvpControlConfig();
+        List<String> problems = config.validate();
+        if (!problems.isEmpty()) {
+            System.err.println("Config problems: " + problems);
+            return;
+        }
+
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        ZoneStatusIndex statusIndex = new ZoneStatusIndex(zoneRegistry);
+        ExecutorService evaluationPool = config.getZoneEvaluationThreads() > 0
+                ? Executors.newFixedThreadPool(config.getZoneEvaluationThreads(), runnable -> {
+                    Thread thread = new Thread(runnable, "LoadSimulator-ZoneEvaluation");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        SimulatedWorld[] worlds = new SimulatedWorld[worldCount];
+        for (int w = 0; w < worldCount; w++) {
+            int players = playerCount / worldCount + (w < playerCount % worldCount ? 1 : 0);
+            SyntheticPlayers synthetic = new SyntheticPlayers(players, StandInZoneSampler.RING_WIDTH * 4.0,
+                    idleShare, skirmishShare, BORDER_RADII, seed + w);
+            worlds[w] = new SimulatedWorld("world-" + w, synthetic, config, zoneRegistry, statusIndex,
+                    evaluationPool, hitsPerSecond, killShare, seed + w);
+        }
+
+        long tickNanos = TimeUnit.SECONDS.toNanos(1L) / tps;
+        double dtSeconds = 1.0 / tps;
+        long now = 0L;
+        for (SimulatedWorld world : worlds) {
+            world.join(now);
+        }
+        long warmupTicks = (long) warmupSeconds * tps;
+        for (long tick = 0; tick < warmupTicks; tick++) {
+            now += tickNanos;
+            for (SimulatedWorld world : worlds) {
+                world.tick(now, tickNanos, dtSeconds);
+            }
+        }
+
+        for (SimulatedWorld world : worlds) {
+            world.startMeasuring();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long wallStart = System.nanoTime();
+        long measuredTicks = (long) seconds * tps;
+        LatencyHistogram serverTicks = new LatencyHistogram();
+        for (long tick = 0; tick < measuredTicks; tick++) {
+            now += tickNanos;
+            long serverTickNanos = 0L;
+            for (SimulatedWorld world : worlds) {
+                serverTickNanos += world.tick(now, tickNanos, dtSeconds);
+            }
+            serverTicks.record(serverTickNanos);
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (evaluationPool != null) {
+            evaluationPool.shutdownNow();
+        }
+
+        report(config, worlds, playerCount, idleShare, skirmishShare, seconds, tps, measuredTicks, serverTicks,
+                allocated, wallNanos, statusIndex);
+    }
+
+    private static void report(ZonePvpControlConfig config, SimulatedWorld[] worlds, int playerCount,
+                               double idleShare, double skirmishShare, int seconds, int tps, long measuredTicks,
+                               LatencyHistogram serverTicks, long allocated, long wallNanos,
+                               ZoneStatusIndex statusIndex) {
+        LatencyHistogram worldTicks = new LatencyHistogram();
+        long[] worldCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        long evaluated = 0L;
+        long skipped = 0L;
+        long generatorCalls = 0L;
+        long notifications = 0L;
+        long allowed = 0L;
+        long blocked = 0L;
+        long drops = 0L;
+        int tagged = 0;
+        for (SimulatedWorld world : worlds) {
+            long[] counts = world.tickTimes.snapshot();
+            for (int i = 0; i < counts.length; i++) {
+                worldCounts[i] += counts[i];
+            }
+            evaluated += world.evaluated;
+            skipped += world.skipped;
+            generatorCalls += world.sampler.getSamples() - world.samplesAtStart;
+            notifications += world.notifications;
+            allowed += world.hitsAllowed;
+            blocked += world.hitsBlocked;
+            drops += world.dropRulesApplied;
+            tagged += world.countTagged();
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                "Simulated %d s at %d TPS: %d worlds, %d players (%.0f%% idle, %.0f%% border skirmish, %.0f%% walking), %s mode%s",
+                seconds, tps, worlds.length, playerCount, idleShare * 100.0, skirmishShare * 100.0,
+                (1.0 - idleShare - skirmishShare) * 100.0, config.getZoneTrackingMode(),
+                config.getZoneTrackingMode() == ZonePvpControlConfig.ZoneTrackingMode.POLL
+                        && config.getZoneEvaluationThreads() > 0
+                        ? " on " + config.getZoneEvaluationThreads() + " evaluation threads" : ""));
+        System.out.println(String.format(Locale.ROOT,
+                "Per world tick: p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms",
+                LatencyHistogram.percentile(worldCounts, 50.0) / 1e6,
+                LatencyHistogram.percentile(worldCounts, 99.0) / 1e6,
+                LatencyHistogram.percentile(worldCounts, 99.9) / 1e6));
+        long[] serverCounts = serverTicks.snapshot();
+        System.out.println(String.format(Locale.ROOT,
+                "All worlds per tick: p50 %.3f ms, p99 %.3f ms",
+                LatencyHistogram.percentile(serverCounts, 50.0) / 1e6,
+                LatencyHistogram.percentile(serverCounts, 99.0) / 1e6));
+        System.out.println(String.format(Locale.ROOT, "Players evaluated: %d (%.0f/s), skipped: %d (%.0f/s)",
+                evaluated, evaluated / (double) seconds, skipped, skipped / (double) seconds));
+        System.out.println(String.format(Locale.ROOT, "Generator calls: %d (%.0f/s)",
+                generatorCalls, generatorCalls / (double) seconds));
+        System.out.println(String.format(Locale.ROOT, "Notifications: %d (%.1f/s)",
+                notifications, notifications / (double) seconds));
+        System.out.println(String.format(Locale.ROOT,
+                "PvP hits: %d allowed, %d blocked; %d drop rules applied; %d players combat tagged at the end",
+                allowed, blocked, drops, tagged));
+        System.out.println(String.format(Locale.ROOT, "Allocation: %.0f bytes per tick across all worlds",
+                allocated / (double) measuredTicks));
+        System.out.println(String.format(Locale.ROOT, "Published statuses: %d; wall time %.1f s (%.1fx real time)",
+                statusIndex.size(), wallNanos / 1e9, seconds / (wallNanos / 1e9)));
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(arg.substring(0, equals).trim().toLowerCase(Locale.ROOT), arg.substring(equals + 1).trim());
+        }
+        return options;
+    }
+
+    static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double doubleOption(Map<String, String> options, String key, double defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * One simulated world: its players, zone evaluation state and PvP timers, ticked like the
+     * plugin's systems tick a real world.
+     */
+    private static final class SimulatedWorld {
+        private final String worldKey;
+        private final SyntheticPlayers players;
+        private final ZonePvpControlConfig config;
+        private final GroupRuleTable groupRules;
+        private final StandInZoneSampler sampler;
+        private final ZoneEvaluator evaluator;
+        private final ZoneStatusIndex statusIndex;
+        private final TimingWheel pvpTimers;
+        private final double hitsPerSecond;
+        private final double killShare;
+        private final SplittableRandom random;
+
+        // Poll passes and the per-tick budget, as the plugin schedules them; players by index.
+        private final ZoneTrackingSchedule<Integer> schedule = new ZoneTrackingSchedule<>(0L);
+        private final List<Integer> playerIndices;
+        // Off-thread evaluation; the pool is null when poll passes are evaluated on the world thread.
+        private final ExecutorService evaluationPool;
+        private final ZoneEvaluationBatch batch = new ZoneEvaluationBatch();
+        private final ZoneEvaluationBatch.ResultSink applyResult = this::applyResult;
+        private CompletableFuture<Void> batchEvaluation;
+        // Players whose PvP flag changed this tick, notified at its end.
+        private final ZoneState[] queued;
+        private int queuedCount;
+        private double pendingHits;
+
+        private final LatencyHistogram tickTimes = new LatencyHistogram();
+        private boolean measuring;
+        private long samplesAtStart;
+        private long evaluated;
+        private long skipped;
+        private long notifications;
+        private long hitsAllowed;
+        private long hitsBlocked;
+        private long dropRulesApplied;
+
+        SimulatedWorld(String worldKey, SyntheticPlayers players, ZonePvpControlConfig config,
+                       ZoneRegistry zoneRegistry, ZoneStatusIndex statusIndex, ExecutorService evaluationPool,
+                       double hitsPerSecond, double killShare, long seed) {
+            this.worldKey = worldKey;
+            this.players = players;
+            this.config = config;
+            this.groupRules = GroupRuleTable.build(config.getRules(), zoneRegistry);
+            this.sampler = new StandInZoneSampler(zoneRegistry);
+            ZoneLookupCache zoneCache = config.getZoneCacheCellSize() > 0
+                    ? new ZoneLookupCache(config.getZoneCacheCapacity(), config.getZoneCacheCellSize())
+                    : null;
+            this.evaluator = new ZoneEvaluator(sampler, zoneCache, zoneRegistry, worldKey);
+            this.statusIndex = statusIndex;
+            this.pvpTimers = new TimingWheel(0L);
+            this.hitsPerSecond = hitsPerSecond;
+            this.killShare = killShare;
+            this.random = new SplittableRandom(seed * 31L + 7L);
+            this.evaluationPool = evaluationPool;
+            this.queued = new ZoneState[players.count];
+            Integer[] indices = new Integer[players.count];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            this.playerIndices = Arrays.asList(indices);
+        }
+
+        /**
+         * Every player joins at the start, with spawn protection.
+         */
+        void join(long nowNanos) {
+            for (int i = 0; i < players.count; i++) {
+                PvpDecisions.startSpawnProtection(players.states[i], pvpTimers, config, nowNanos);
+            }
+        }
+
+        void startMeasuring() {
+            measuring = true;
+            samplesAtStart = sampler.getSamples();
+            evaluated = 0L;
+            skipped = 0L;
+            notifications = 0L;
+            hitsAllowed = 0L;
+            hitsBlocked = 0L;
+            dropRulesApplied = 0L;
+        }
+
+        /**
+         * Run one world tick: players move, then the plugin's share of the tick runs and is timed.
+         *
+         * @return the time spent on the plugin's work
+         */
+        long tick(long nowNanos, long tickNanos, double dtSeconds) {
+            for (int i = 0; i < players.count; i++) {
+                players.step(i, dtSeconds);
+            }
+
+            // The simulated clock runs ahead of the workers, so wait for them as if they kept up with the tick.
+            if (batchEvaluation != null) {
+                batchEvaluation.join();
+            }
+            long start = System.nanoTime();
+            pvpTimers.advance(nowNanos);
+            finishEvaluationBatch();
+            if (config.getZoneTrackingMode() == ZonePvpControlConfig.ZoneTrackingMode.TICK) {
+                trackTick(nowNanos);
+            } else if (evaluationPool != null) {
+                trackOffThread(nowNanos, start);
+            } else {
+                trackPollSlice(nowNanos, tickNanos, start);
+            }
+            damage(nowNanos, dtSeconds);
+            drainNotifications();
+            long elapsed = System.nanoTime() - start;
+            if (measuring) {
+                tickTimes.record(elapsed);
+            }
+            return elapsed;
+        }
+
+        private void trackPollSlice(long nowNanos, long tickNanos, long startNanos) {
+            if (!schedule.hasPendingPass()) {
+                if (!schedule.isPassDue(nowNanos, POLL_NANOS) || players.count == 0) {
+                    return;
+                }
+                schedule.startPass(playerIndices, nowNanos);
+            }
+            int quota = schedule.passSliceQuota(nowNanos, POLL_NANOS, tickNanos);
+            long budgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, config.getZoneTrackingBudgetMicros()));
+            for (int handled = 0; handled < quota; handled++) {
+                if (ZoneTrackingSchedule.isOutOfTime(handled, startNanos, budgetNanos)) {
+                    break;
+                }
+                int i = schedule.nextPassPlayer();
+                if (isDue(i, config.getZoneForcedRefreshPolls(), nowNanos)) {
+                    evaluate(i, nowNanos);
+                }
+            }
+        }
+
+        private void trackOffThread(long nowNanos, long startNanos) {
+            if (!schedule.hasPendingPass()) {
+                if (batchEvaluation != null || !schedule.isPassDue(nowNanos, POLL_NANOS) || players.count == 0) {
+                    return;
+                }
+                schedule.startPass(playerIndices, nowNanos);
+                batch.reset(null, groupRules, config, nowNanos);
+            }
+            long passNow = batch.getNowNanos();
+            long budgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, config.getZoneTrackingBudgetMicros()));
+            for (int handled = 0; schedule.hasPendingPass(); handled++) {
+                if (ZoneTrackingSchedule.isOutOfTime(handled, startNanos, budgetNanos)) {
+                    break;
+                }
+                int i = schedule.nextPassPlayer();
+                if (isDue(i, config.getZoneForcedRefreshPolls(), passNow)) {
+                    evaluated++;
+                    batch.add(null, players.ids[i], players.states[i], players.x[i], players.z[i]);
+                }
+            }
+            if (!schedule.hasPendingPass() && batch.size() > 0) {
+                batchEvaluation = CompletableFuture.runAsync(() -> batch.evaluate(evaluator), evaluationPool);
+            }
+        }
+
+        private void finishEvaluationBatch() {
+            if (batchEvaluation == null || !batchEvaluation.isDone()) {
+                return;
+            }
+            batchEvaluation.join();
+            batchEvaluation = null;
+            batch.apply(applyResult);
+        }
+
+        private void applyResult(Player player, UUID playerId, ZoneState state, boolean pvpChanged) {
+            statusIndex.publish(playerId, state, worldKey);
+            if (pvpChanged) {
+                queue(state);
+            }
+        }
+
+        private void trackTick(long nowNanos) {
+            schedule.beginTick(config.getZoneTickBudget(), nowNanos);
+            for (int i = 0; i < players.count; i++) {
+                if (!isDue(i, config.getZoneTickForcedRefreshTicks(), nowNanos)) {
+                    continue;
+                }
+                ZoneState state = players.states[i];
+                int admission = schedule.admitDue(state.deferred);
+                if (admission == ZoneTrackingSchedule.ADMITTED) {
+                    state.deferred = false;
+                    evaluate(i, nowNanos);
+                } else if (admission == ZoneTrackingSchedule.DEFERRED) {
+                    state.deferred = true;
+                }
+            }
+        }
+
+        private boolean isDue(int i, int refreshInterval, long nowNanos) {
+            ZoneState state = players.states[i];
+            if (!ZoneEvaluator.isEvaluationDue(state, null, players.x[i], players.z[i], groupRules,
+                    config.getZoneRecheckMinDistance(), refreshInterval, nowNanos)) {
+                state.pollsSinceEvaluation++;
+                skipped++;
+                return false;
+            }
+            return true;
+        }
+
+        private void evaluate(int i, long nowNanos) {
+            evaluated++;
+            ZoneState state = players.states[i];
+            boolean changed = evaluator.evaluate(state, null, players.x[i], players.z[i], groupRules,
+                    config.getZoneBorderMargin(), TimeUnit.MILLISECONDS.toNanos(config.getZoneBorderDwellMillis()),
+                    nowNanos);
+            evaluator.scheduleNextCheck(state, groupRules, config.getZoneBorderProbeDistance(),
+                    config.getPlayerMaxSpeed(), nowNanos);
+            statusIndex.publish(players.ids[i], state, worldKey);
+            if (changed) {
+                queue(state);
+            }
+        }
+
+        private void queue(ZoneState state) {
+            if (!state.notificationQueued) {
+                state.notificationQueued = true;
+                queued[queuedCount++] = state;
+            }
+        }
+
+        private void damage(long nowNanos, double dtSeconds) {
+            pendingHits += hitsPerSecond * dtSeconds;
+            while (pendingHits >= 1.0 && players.count > 1) {
+                pendingHits -= 1.0;
+                int attacker = random.nextInt(players.count);
+                int target = random.nextInt(players.count - 1);
+                if (target >= attacker) {
+                    target++;
+                }
+                ZoneState attackerState = players.states[attacker];
+                ZoneState targetState = players.states[target];
+                if (!PvpDecisions.applyHit(attackerState, targetState, pvpTimers, config, nowNanos)) {
+                    hitsBlocked++;
+                    continue;
+                }
+                hitsAllowed++;
+                if (random.nextDouble() < killShare) {
+                    if (PvpDecisions.resolveDropMode(targetState, attackerState, groupRules)
+                            != ZonePvpControlConfig.PvpDropMode.DEFAULT) {
+                        dropRulesApplied++;
+                    }
+                    // The victim respawns on the spot, protected; like the plugin, their combat tag runs on.
+                    PvpDecisions.startSpawnProtection(targetState, pvpTimers, config, nowNanos);
+                }
+            }
+        }
+
+        private void drainNotifications() {
+            for (int n = 0; n < queuedCount; n++) {
+                ZoneState state = queued[n];
+                queued[n] = null;
+                state.notificationQueued = false;
+                if (state.pvpEnabled != state.notifiedPvp) {
+                    state.notifiedPvp = state.pvpEnabled;
+                    notifications++;
+                }
+            }
+            queuedCount = 0;
+        }
+
+        int countTagged() {
+            int tagged = 0;
+            for (ZoneState state : players.states) {
+                if (state.combatTag.isRunning()) {
+                    tagged++;
+                }
+            }
+            return tagged;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package games.austale.zonepvpcontrol;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of custom region lookups as the number of regions grows. Regions are boxes and polygons
+ * scattered at a constant density, with a few large ones, so only the region count changes.
+ * {@link BruteForceCheck} checks the index against a linear scan over the same layouts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegionLookupBenchmark {
+
+    private static final int POSITIONS = 4096;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int regions;
+
+    private RegionIndex index;
+    private final double[] x = new double[POSITIONS];
+    private final double[] z = new double[POSITIONS];
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(23L);
+        double extent = extent(regions);
+        index = ZoneRules.compile(Map.of(), Map.of(), false, null, 0.0, 0.0, null, scatteredRegions(regions, random))
+                .regionsFor(null);
+        for (int i = 0; i < POSITIONS; i++) {
+            x[i] = (random.nextDouble() * 2.0 - 1.0) * extent;
+            z[i] = (random.nextDouble() * 2.0 - 1.0) * extent;
+        }
+    }
+
+    /**
+     * Half the edge length of the square the regions are scattered over, keeping about one region
+     * per million square blocks.
+     */
+    static double extent(int regions) {
+        return 1000.0 * Math.sqrt(regions);
+    }
+
+    /**
+     * Random boxes and polygons scattered over {@link #extent}, in config order.
+     */
+    static List<ZonePvpControlConfig.PvpRegionConfig> scatteredRegions(int regions, SplittableRandom random) {
+        double extent = extent(regions);
+        StringBuilder json = new StringBuilder("{\"pvp_regions\": [");
+        for (int i = 0; i < regions; i++) {
+            double centerX = (random.nextDouble() * 2.0 - 1.0) * extent;
+            double centerZ = (random.nextDouble() * 2.0 - 1.0) * extent;
+            double halfWidth = random.nextInt(50) == 0 ? 1500.0 : 10.0 + random.nextDouble() * 100.0;
+            json.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                    "{\"name\": \"r%d\", \"priority\": %d, \"pvp_enabled\": %b, ", i, random.nextInt(5),
+                    random.nextBoolean()));
+            if (random.nextBoolean()) {
+                json.append(String.format(Locale.ROOT, "\"min\": [%f, %f], \"max\": [%f, %f]}",
+                        centerX - halfWidth, centerZ - halfWidth, centerX + halfWidth, centerZ + halfWidth));
+                continue;
+            }
+            int corners = 3 + random.nextInt(6);
+            json.append("\"points\": [");
+            for (int corner = 0; corner < corners; corner++) {
+                double angle = 2.0 * Math.PI * corner / corners;
+                double radius = halfWidth * (0.5 + random.nextDouble());
+                json.append(corner == 0 ? "" : ",").append(String.format(Locale.ROOT, "[%f, %f]",
+                        centerX + Math.cos(angle) * radius, centerZ + Math.sin(angle) * radius));
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        return new Gson().fromJson(json.toString(), ZonePvpControlConfig.class).getPvpRegions();
+    }
+
+    @Benchmark
+    public void regionAt(Blackhole blackhole) {
+        for (int i = 0; i < POSITIONS; i++) {
+            blackhole.consume(index.regionAt(x[i], z[i]));
+        }
+    }
+
+    @Benchmark
+    public void nearestBoundary(Blackhole blackhole) {
+        for (int i = 0; i < POSITIONS; i += 64) {
+            blackhole.consume(index.distanceToNearestBoundary(x[i], z[i], 512.0));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Stand-in for the player entities of a world: each player carries a {@link ZoneState} component,
+ * a UUID and a position that walks in a straight line, turning now and then.
+ */
+final class StandInPlayers {
+
+    // Walking speed of about 4.3 blocks per second, sampled once per one-second poll.
+    private static final double STEP = 4.3;
+    private static final double TURN_CHANCE = 0.05;
+
+    final int count;
+    final ZoneState[] states;
+    final UUID[] ids;
+    final double[] x;
+    final double[] z;
+    private final double[] headingX;
+    private final double[] headingZ;
+    private final SplittableRandom random;
+
+    StandInPlayers(int count, double radius, long seed) {
+        this.count = count;
+        this.states = new ZoneState[count];
+        this.ids = new UUID[count];
+        this.x = new double[count];
+        this.z = new double[count];
+        this.headingX = new double[count];
+        this.headingZ = new double[count];
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            states[i] = new ZoneState();
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            double angle = random.nextDouble(Math.PI * 2.0);
+            double distance = radius * Math.sqrt(random.nextDouble());
+            x[i] = Math.cos(angle) * distance;
+            z[i] = Math.sin(angle) * distance;
+            turn(i);
+        }
+    }
+
+    /**
+     * Advance one player by one poll interval.
+     */
+    void step(int i) {
+        if (random.nextDouble() < TURN_CHANCE) {
+            turn(i);
+        }
+        x[i] += headingX[i];
+        z[i] += headingZ[i];
+    }
+
+    private void turn(int i) {
+        double angle = random.nextDouble(Math.PI * 2.0);
+        headingX[i] = Math.cos(angle) * STEP;
+        headingZ[i] = Math.sin(angle) * STEP;
+    }
+}
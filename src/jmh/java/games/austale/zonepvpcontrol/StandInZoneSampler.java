@@ -0,0 +1,39 @@
+package games.austale.zonepvpcontrol;
+
+/**
+ * Synthetic zone layout standing in for a world generator: zone groups Zone1..Zone4 in concentric
+ * rings around the origin, each split into biome zones on a coarse hashed grid.
+ */
+final class StandInZoneSampler implements ZoneSampler {
+
+    static final double RING_WIDTH = 600.0;
+    private static final int BIOME_CELL_SHIFT = 6;
+    private static final String[] GROUPS = {"Zone1", "Zone2", "Zone3", "Zone4"};
+    private static final String[] BIOMES = {"Plains", "Forest", "Desert", "Tundra"};
+
+    private final int[] zoneIds = new int[GROUPS.length * BIOMES.length];
+    private long samples;
+
+    StandInZoneSampler(ZoneRegistry zoneRegistry) {
+        for (int group = 0; group < GROUPS.length; group++) {
+            for (int biome = 0; biome < BIOMES.length; biome++) {
+                zoneIds[group * BIOMES.length + biome] = zoneRegistry.zoneId(GROUPS[group] + "_" + BIOMES[biome]);
+            }
+        }
+    }
+
+    @Override
+    public int sampleZoneId(double x, double z) {
+        samples++;
+        int group = Math.min(GROUPS.length - 1, (int) (Math.sqrt(x * x + z * z) / RING_WIDTH));
+        int cellX = (int) Math.floor(x) >> BIOME_CELL_SHIFT;
+        int cellZ = (int) Math.floor(z) >> BIOME_CELL_SHIFT;
+        int hash = cellX * 0x9E3779B1 ^ cellZ * 0x85EBCA77;
+        int biome = (hash ^ (hash >>> 15)) & (BIOMES.length - 1);
+        return zoneIds[group * BIOMES.length + biome];
+    }
+
+    long getSamples() {
+        return samples;
+    }
+}
@@ -0,0 +1,127 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Synthetic players of one simulated world, each following one of a few movement models and
+ * carrying a {@link ZoneState} component, a UUID and a position advanced once per tick.
+ */
+final class SyntheticPlayers {
+
+    enum Movement {
+        // Standing still, with the odd small shuffle.
+        IDLE,
+        // Walking in a straight line, turning now and then.
+        WALKING,
+        // Fighting around a PvP border, stepping back and forth across it.
+        BORDER_SKIRMISH
+    }
+
+    private static final double WALK_SPEED = 4.3;
+    private static final double TURNS_PER_SECOND = 0.05;
+    private static final double SHUFFLES_PER_SECOND = 0.1;
+    private static final double SHUFFLE_DISTANCE = 0.5;
+    // Skirmishers swing this far either side of the border, once every few seconds.
+    private static final double SKIRMISH_AMPLITUDE = 6.0;
+    private static final double SKIRMISH_PERIOD_SECONDS = 4.0;
+    // And drift slowly along it.
+    private static final double SKIRMISH_DRIFT_SPEED = 1.0;
+
+    final int count;
+    final ZoneState[] states;
+    final UUID[] ids;
+    final Movement[] movement;
+    final double[] x;
+    final double[] z;
+    private final double[] headingX;
+    private final double[] headingZ;
+    // Skirmish border radius, angle around the origin and swing phase.
+    private final double[] borderRadius;
+    private final double[] angle;
+    private final double[] phase;
+    private final SplittableRandom random;
+
+    /**
+     * @param count          number of players
+     * @param radius         players start uniformly within this distance of the origin
+     * @param idleShare      share of idle players
+     * @param skirmishShare  share of border skirmishers; the rest walk
+     * @param borderRadii    distances from the origin of the PvP borders skirmishers fight over
+     * @param seed           random seed
+     */
+    SyntheticPlayers(int count, double radius, double idleShare, double skirmishShare, double[] borderRadii,
+                     long seed) {
+        this.count = count;
+        this.states = new ZoneState[count];
+        this.ids = new UUID[count];
+        this.movement = new Movement[count];
+        this.x = new double[count];
+        this.z = new double[count];
+        this.headingX = new double[count];
+        this.headingZ = new double[count];
+        this.borderRadius = new double[count];
+        this.angle = new double[count];
+        this.phase = new double[count];
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            states[i] = new ZoneState();
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            double roll = random.nextDouble();
+            movement[i] = roll < idleShare ? Movement.IDLE
+                    : roll < idleShare + skirmishShare ? Movement.BORDER_SKIRMISH : Movement.WALKING;
+            angle[i] = random.nextDouble(Math.PI * 2.0);
+            if (movement[i] == Movement.BORDER_SKIRMISH) {
+                borderRadius[i] = borderRadii[random.nextInt(borderRadii.length)];
+                phase[i] = random.nextDouble(Math.PI * 2.0);
+                placeSkirmisher(i);
+            } else {
+                double distance = radius * Math.sqrt(random.nextDouble());
+                x[i] = Math.cos(angle[i]) * distance;
+                z[i] = Math.sin(angle[i]) * distance;
+                turn(i);
+            }
+        }
+    }
+
+    /**
+     * Advance one player by one tick.
+     *
+     * @param i         the player
+     * @param dtSeconds the tick length in seconds
+     */
+    void step(int i, double dtSeconds) {
+        switch (movement[i]) {
+            case IDLE -> {
+                if (random.nextDouble() < SHUFFLES_PER_SECOND * dtSeconds) {
+                    x[i] += random.nextDouble(-SHUFFLE_DISTANCE, SHUFFLE_DISTANCE);
+                    z[i] += random.nextDouble(-SHUFFLE_DISTANCE, SHUFFLE_DISTANCE);
+                }
+            }
+            case WALKING -> {
+                if (random.nextDouble() < TURNS_PER_SECOND * dtSeconds) {
+                    turn(i);
+                }
+                x[i] += headingX[i] * dtSeconds;
+                z[i] += headingZ[i] * dtSeconds;
+            }
+            case BORDER_SKIRMISH -> {
+                phase[i] += Math.PI * 2.0 * dtSeconds / SKIRMISH_PERIOD_SECONDS;
+                angle[i] += SKIRMISH_DRIFT_SPEED * dtSeconds / borderRadius[i];
+                placeSkirmisher(i);
+            }
+        }
+    }
+
+    private void placeSkirmisher(int i) {
+        double distance = borderRadius[i] + Math.sin(phase[i]) * SKIRMISH_AMPLITUDE;
+        x[i] = Math.cos(angle[i]) * distance;
+        z[i] = Math.sin(angle[i]) * distance;
+    }
+
+    private void turn(int i) {
+        double heading = random.nextDouble(Math.PI * 2.0);
+        headingX[i] = Math.cos(heading) * WALK_SPEED;
+        headingZ[i] = Math.sin(heading) * WALK_SPEED;
+    }
+}
@@ -0,0 +1,812 @@
+package games.austale.zonepvpcontrol;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline replay of a zone trace recorded by the plugin ({@code zone_trace_enabled}): every
+ * recorded poll, zone evaluation and PvP decision runs again through the current decision code,
+ * with the world generator replaced by the zone lookups recorded alongside, and each outcome is
+ * compared with the recorded one. Replaying a trace after a change shows whether the change alters
+ * any decision, and how long the recorded load takes to decide.
+ * <p>
+ * Each world is replayed from a fresh state, following the recorded control flow: a player the
+ * plugin evaluated is evaluated again even if the replayed due check disagrees, so one difference
+ * does not cascade. Hits, spawn protection and ready players go through the same PvP timer and flag
+ * changes as the plugin's ({@link PvpDecisions}), so combat tags follow the replayed hit decisions
+ * and a change to them shows up in later hits. A world's replay stops where its recorded lookups
+ * end, which in a trace cut short is earlier than its events. Baked zone rasters the trace used are
+ * read from the raster directory.
+ * <p>
+ * Run with {@code ./gradlew replay --args="trace=config/ZonePVPControl/zone-trace-20260101-120000.bin"}.
+ * Options, as {@code key=value}: {@code trace}, {@code rasters} (the baked raster directory, by
+ * default the trace's) and {@code repeat} (replays to time, reporting the fastest). Exits with
+ * status 1 if any decision differs from the recorded one.
+ */
+public final class ZoneTraceReplay {
+
+    private static final int LISTED_MISMATCHES = 20;
+    private static final int UNMAPPED = Integer.MIN_VALUE;
+
+    private ZoneTraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadSimulator.parseOptions(args);
+        String traceOption = options.get("trace");
+        if (traceOption == null) {
+            System.err.println("Usage: trace=<file> [rasters=<directory>] [repeat=<runs>]");
+            System.exit(2);
+            return;
+        }
+        Path traceFile = Path.of(traceOption);
+        Path rasterDirectory = options.containsKey("rasters")
+                ? Path.of(options.get("rasters"))
+                : traceFile.toAbsolutePath().getParent();
+        int repeat = Math.max(1, LoadSimulator.intOption(options, "repeat", 1));
+
+        List<TraceStream> streams = readStreams(traceFile);
+        ZoneNames zoneNames = new ZoneNames();
+        Map<String, RecordedLookups> lookupsByWorld = new LinkedHashMap<>();
+        List<TraceStream> eventStreams = new ArrayList<>();
+        for (TraceStream stream : streams) {
+            if (stream.kind == ZoneTraceRecorder.STREAM_LOOKUPS) {
+                lookupsByWorld.computeIfAbsent(stream.worldKey, key -> new RecordedLookups()).load(stream, zoneNames);
+            } else if (stream.kind == ZoneTraceRecorder.STREAM_EVENTS) {
+                eventStreams.add(stream);
+            }
+        }
+        if (eventStreams.isEmpty()) {
+            System.err.println("No world events recorded in " + traceFile);
+            System.exit(2);
+            return;
+        }
+
+        WorldReplay[] worlds = null;
+        Mismatches mismatches = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < repeat; run++) {
+            mismatches = new Mismatches();
+            worlds = new WorldReplay[eventStreams.size()];
+            long start = System.nanoTime();
+            for (int w = 0; w < worlds.length; w++) {
+                TraceStream events = eventStreams.get(w);
+                RecordedLookups lookups = lookupsByWorld.getOrDefault(events.worldKey, RecordedLookups.NONE);
+                worlds[w] = new WorldReplay(events, lookups, zoneNames, rasterDirectory, mismatches);
+                worlds[w].run();
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        report(traceFile, worlds, lookupsByWorld, mismatches, bestNanos, repeat);
+        System.exit(mismatches.count == 0 ? 0 : 1);
+    }
+
+    private static void report(Path traceFile, WorldReplay[] worlds, Map<String, RecordedLookups> lookupsByWorld,
+                               Mismatches mismatches, long bestNanos, int repeat) throws IOException {
+        long recordedNanos = 0L;
+        long decisions = 0L;
+        for (WorldReplay world : worlds) {
+            recordedNanos = Math.max(recordedNanos, world.clockNanos - world.startNanos);
+            decisions += world.polls + world.results + world.hits + world.kills;
+        }
+        System.out.println(String.format(Locale.ROOT, "Replayed %s (%.1f MB): %d worlds, %.1f s recorded",
+                traceFile, Files.size(traceFile) / (1024.0 * 1024.0), worlds.length, recordedNanos / 1e9));
+        for (WorldReplay world : worlds) {
+            RecordedLookups lookups = lookupsByWorld.getOrDefault(world.events.worldKey, RecordedLookups.NONE);
+            System.out.println(String.format(Locale.ROOT,
+                    "World %s: %d polls, %d evaluations, %d results, %d hits, %d kills; %d recorded lookups%s",
+                    world.label(), world.polls, world.evaluations, world.results, world.hits, world.kills,
+                    lookups.count, world.truncated || lookups.truncated ? " (trace ends mid-record)" : ""));
+            if (world.lookupsEnded) {
+                System.out.println(String.format(Locale.ROOT,
+                        "  Stopped at +%.3f s, where the recorded lookups end", world.elapsedSeconds()));
+            }
+            if (world.rasterWarning != null) {
+                System.out.println("  " + world.rasterWarning);
+            }
+        }
+        if (mismatches.count == 0) {
+            System.out.println(String.format(Locale.ROOT, "All %d decisions match the recording", decisions));
+        } else {
+            System.out.println(String.format(Locale.ROOT, "%d of %d decisions differ from the recording: %s",
+                    mismatches.count, decisions, mismatches.byDecision));
+            for (String mismatch : mismatches.listed) {
+                System.out.println("  " + mismatch);
+            }
+            if (mismatches.count > mismatches.listed.size()) {
+                System.out.println("  ...");
+            }
+        }
+        double seconds = bestNanos / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "Replay time: %.1f ms (fastest of %d), %.0f decisions/s, %.0f ns per decision including decoding",
+                bestNanos / 1e6, repeat, decisions / seconds, bestNanos / (double) Math.max(1L, decisions)));
+    }
+
+    /**
+     * Split a trace file into its streams, keeping whatever was written before it was cut short.
+     */
+    private static List<TraceStream> readStreams(Path file) throws IOException {
+        Map<Integer, TraceStream> streams = new LinkedHashMap<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            ByteBuffer header = ByteBuffer.wrap(in.readNBytes(8));
+            if (header.remaining() < 8 || header.getInt() != ZoneTraceRecorder.MAGIC) {
+                throw new IOException("Not a zone trace: " + file);
+            }
+            int version = header.getInt();
+            if (version != ZoneTraceRecorder.VERSION) {
+                throw new IOException("Unsupported zone trace version " + version + ": " + file);
+            }
+            while (true) {
+                ByteBuffer chunkHeader = ByteBuffer.wrap(in.readNBytes(ZoneTraceRecorder.CHUNK_HEADER_BYTES));
+                if (chunkHeader.remaining() < ZoneTraceRecorder.CHUNK_HEADER_BYTES) {
+                    break;
+                }
+                int streamId = chunkHeader.getInt();
+                int length = chunkHeader.getInt();
+                byte[] data = in.readNBytes(length);
+                streams.computeIfAbsent(streamId, id -> new TraceStream()).append(data);
+                if (data.length < length) {
+                    break;
+                }
+            }
+        }
+        List<TraceStream> started = new ArrayList<>();
+        for (TraceStream stream : streams.values()) {
+            if (stream.readStart()) {
+                started.add(stream);
+            }
+        }
+        return started;
+    }
+
+    private static long varLong(ByteBuffer in) {
+        long value = 0L;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(ByteBuffer in) {
+        long value = varLong(in);
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private static int zone(ByteBuffer in) {
+        return (int) varLong(in) - 1;
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[(int) varLong(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The records of one stream, gathered from its chunks.
+     */
+    private static final class TraceStream {
+        private byte[] data = new byte[1 << 16];
+        private int size;
+        private int recordsStart;
+        byte kind;
+        String worldKey;
+
+        void append(byte[] chunk) {
+            if (size + chunk.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + chunk.length, data.length * 2));
+            }
+            System.arraycopy(chunk, 0, data, size, chunk.length);
+            size += chunk.length;
+        }
+
+        /**
+         * Read the stream's kind and world from its start record.
+         *
+         * @return false if the stream has no complete start record
+         */
+        boolean readStart() {
+            ByteBuffer in = ByteBuffer.wrap(data, 0, size);
+            try {
+                if (in.get() != ZoneTraceRecorder.START) {
+                    return false;
+                }
+                kind = in.get();
+                worldKey = string(in);
+            } catch (BufferUnderflowException e) {
+                return false;
+            }
+            recordsStart = in.position();
+            return true;
+        }
+
+        /**
+         * The stream after its start record.
+         */
+        ByteBuffer records() {
+            return ByteBuffer.wrap(data, recordsStart, size - recordsStart);
+        }
+    }
+
+    /**
+     * Zone names by the zone id the plugin recorded them under.
+     */
+    private static final class ZoneNames {
+        private String[] names = new String[64];
+
+        void declare(int zoneId, String name) {
+            if (zoneId >= names.length) {
+                names = Arrays.copyOf(names, Math.max(zoneId + 1, names.length * 2));
+            }
+            names[zoneId] = name;
+        }
+
+        String name(int zoneId) {
+            return zoneId >= 0 && zoneId < names.length ? names[zoneId] : null;
+        }
+    }
+
+    /**
+     * Zones a world's generator returned, by the exact position they were sampled at.
+     */
+    private static final class RecordedLookups {
+        static final RecordedLookups NONE = new RecordedLookups();
+
+        private final PositionMap zoneIds = new PositionMap();
+        long count;
+        boolean truncated;
+
+        void load(TraceStream stream, ZoneNames zoneNames) {
+            ByteBuffer in = stream.records();
+            long xBits = 0L;
+            long zBits = 0L;
+            try {
+                while (in.hasRemaining()) {
+                    byte tag = in.get();
+                    switch (tag) {
+                        case ZoneTraceRecorder.ZONE -> zoneNames.declare((int) varLong(in), string(in));
+                        case ZoneTraceRecorder.LOOKUP -> {
+                            xBits += zigZag(in);
+                            zBits += zigZag(in);
+                            zoneIds.put(xBits, zBits, zone(in));
+                            count++;
+                        }
+                        default -> throw new IllegalStateException("Unknown lookup record " + tag + " in world "
+                                + stream.worldKey + " at " + (in.position() - 1));
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                truncated = true;
+            }
+        }
+
+        /**
+         * Recorded zone id at a position, or {@link #UNMAPPED} if no lookup was recorded there.
+         */
+        int zoneIdAt(double x, double z) {
+            return zoneIds.get(Double.doubleToRawLongBits(x), Double.doubleToRawLongBits(z));
+        }
+    }
+
+    /**
+     * Open-addressing map from a pair of longs to an int.
+     */
+    private static final class PositionMap {
+        private long[] xs = new long[1024];
+        private long[] zs = new long[1024];
+        // Value plus 2, so 0 marks an empty slot and NO_ZONE fits.
+        private int[] values = new int[1024];
+        private int size;
+
+        void put(long x, long z, int value) {
+            if ((size + 1) * 2 > values.length) {
+                grow();
+            }
+            int index = find(x, z);
+            if (values[index] == 0) {
+                size++;
+                xs[index] = x;
+                zs[index] = z;
+            }
+            values[index] = value + 2;
+        }
+
+        int get(long x, long z) {
+            int value = values[find(x, z)];
+            return value == 0 ? UNMAPPED : value - 2;
+        }
+
+        private int find(long x, long z) {
+            int mask = values.length - 1;
+            int index = mix(x, z) & mask;
+            while (values[index] != 0 && (xs[index] != x || zs[index] != z)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void grow() {
+            long[] oldXs = xs;
+            long[] oldZs = zs;
+            int[] oldValues = values;
+            xs = new long[oldValues.length * 2];
+            zs = new long[oldValues.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int index = find(oldXs[i], oldZs[i]);
+                    xs[index] = oldXs[i];
+                    zs[index] = oldZs[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(long x, long z) {
+            long hash = x * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(z * 0xC2B2AE3D27D4EB4FL, 31);
+            hash ^= hash >>> 29;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private static final class Mismatches {
+        private final List<String> listed = new ArrayList<>();
+        private final Map<String, Long> byDecision = new TreeMap<>();
+        private long count;
+
+        void add(String decision, String detail) {
+            count++;
+            byDecision.merge(decision, 1L, Long::sum);
+            if (listed.size() < LISTED_MISMATCHES) {
+                listed.add(detail);
+            }
+        }
+    }
+
+    /**
+     * A recorded player: their zone state, replayed in place of the plugin's, and what the trace
+     * knows of them that the state does not hold.
+     */
+    private static final class ReplayedPlayer {
+        final int id;
+        final UUID playerId;
+        final ZoneState state = new ZoneState();
+        // Whether the state was last evaluated in this world, as the plugin's lastWorld check.
+        boolean inWorld;
+        long xBits;
+        long zBits;
+        // Outcome of the last evaluation, and of one snapshotted for evaluation off the world thread.
+        boolean changed;
+        ZoneState shadow;
+        boolean pending;
+
+        ReplayedPlayer(int id, UUID playerId) {
+            this.id = id;
+            this.playerId = playerId;
+        }
+    }
+
+    /**
+     * Replays one world's event stream with its own registry, rules, evaluator and PvP timers.
+     */
+    private static final class WorldReplay {
+        private final TraceStream events;
+        private final String worldKey;
+        private final RecordedLookups lookups;
+        private final ZoneNames zoneNames;
+        private final Path rasterDirectory;
+        private final Mismatches mismatches;
+        private final ZoneRegistry zoneRegistry = new ZoneRegistry();
+        // Registry zone ids by recorded zone id, filled as recorded zones come up.
+        private int[] zoneIds = new int[64];
+        private String[] regionNames = new String[16];
+        private ReplayedPlayer[] players = new ReplayedPlayer[64];
+        private ZonePvpControlConfig settings = new ZonePvpControlConfig();
+        private GroupRuleTable groupRules;
+        private ZoneEvaluator evaluator;
+        private TimingWheel pvpTimers;
+        private long startNanos;
+        private long clockNanos;
+        private boolean truncated;
+        private boolean lookupsEnded;
+        private String rasterWarning;
+
+        private long polls;
+        private long evaluations;
+        private long results;
+        private long hits;
+        private long kills;
+
+        WorldReplay(TraceStream events, RecordedLookups lookups, ZoneNames zoneNames, Path rasterDirectory,
+                    Mismatches mismatches) {
+            this.events = events;
+            this.worldKey = events.worldKey.isEmpty() ? null : events.worldKey;
+            this.lookups = lookups;
+            this.zoneNames = zoneNames;
+            this.rasterDirectory = rasterDirectory;
+            this.mismatches = mismatches;
+            Arrays.fill(zoneIds, UNMAPPED);
+        }
+
+        void run() {
+            ByteBuffer in = events.records();
+            try {
+                pvpTimers = new TimingWheel(in.getLong());
+                startNanos = in.getLong();
+                clockNanos = startNanos;
+                groupRules = GroupRuleTable.build(settings.getRules(), zoneRegistry);
+                while (in.hasRemaining()) {
+                    replay(in.get(), in);
+                }
+            } catch (BufferUnderflowException e) {
+                truncated = true;
+            } catch (LookupsEnded e) {
+                lookupsEnded = true;
+            }
+        }
+
+        double elapsedSeconds() {
+            return (clockNanos - startNanos) / 1e9;
+        }
+
+        String label() {
+            return worldKey == null ? "(default)" : worldKey;
+        }
+
+        private void replay(byte tag, ByteBuffer in) {
+            switch (tag) {
+                case ZoneTraceRecorder.CONFIG -> settings = ZonePvpControlConfig.fromJson(string(in));
+                case ZoneTraceRecorder.RULES -> rules((int) varLong(in));
+                case ZoneTraceRecorder.CLOCK -> clockNanos += zigZag(in);
+                case ZoneTraceRecorder.ADVANCE -> pvpTimers.advance(clockNanos);
+                case ZoneTraceRecorder.ATTACH -> attach(in);
+                case ZoneTraceRecorder.DETACH -> detach((int) varLong(in));
+                case ZoneTraceRecorder.POLL -> poll(in);
+                case ZoneTraceRecorder.RESULT -> result(in);
+                case ZoneTraceRecorder.BATCH_DROPPED -> {
+                    for (ReplayedPlayer player : players) {
+                        if (player != null) {
+                            player.pending = false;
+                        }
+                    }
+                }
+                case ZoneTraceRecorder.HIT -> hit(in);
+                case ZoneTraceRecorder.KILL -> kill(in);
+                case ZoneTraceRecorder.PROTECT -> protect(player(in));
+                case ZoneTraceRecorder.READY -> ready(player(in));
+                case ZoneTraceRecorder.RESET -> reset();
+                case ZoneTraceRecorder.RASTER -> raster((int) zigZag(in), in.getLong());
+                case ZoneTraceRecorder.ZONE -> zoneNames.declare((int) varLong(in), string(in));
+                case ZoneTraceRecorder.REGION -> {
+                    int regionId = (int) varLong(in);
+                    if (regionId >= regionNames.length) {
+                        regionNames = Arrays.copyOf(regionNames, Math.max(regionId + 1, regionNames.length * 2));
+                    }
+                    regionNames[regionId] = string(in);
+                }
+                default -> throw new IllegalStateException("Unknown event record " + tag + " in world " + label()
+                        + " at " + (in.position() - 1));
+            }
+        }
+
+        /**
+         * Switch to a new rule table. Zones are registered in their recorded order first, so the
+         * table covers the same zone groups the plugin's did.
+         */
+        private void rules(int zoneCount) {
+            for (int zoneId = 0; zoneId < zoneCount; zoneId++) {
+                zoneId(zoneId);
+            }
+            groupRules = GroupRuleTable.build(settings.getRules(), zoneRegistry);
+        }
+
+        private void attach(ByteBuffer in) {
+            int id = (int) varLong(in);
+            ReplayedPlayer player = new ReplayedPlayer(id, new UUID(in.getLong(), in.getLong()));
+            ZoneState state = player.state;
+            int flags = in.get();
+            state.zoneId = zoneId(zone(in));
+            state.groupId = zoneRegistry.groupOf(state.zoneId);
+            String regionName = regionName((int) varLong(in) - 1);
+            state.region = regionName == null ? null : groupRules.regionsFor(worldKey).named(regionName);
+            state.pvpEnabled = (flags & ZoneTraceRecorder.ATTACH_PVP) != 0;
+            // Rules older than the current ones only ever compare unequal to them.
+            state.groupRules = (flags & ZoneTraceRecorder.ATTACH_RULES_CURRENT) != 0 ? groupRules : null;
+            player.inWorld = (flags & ZoneTraceRecorder.ATTACH_IN_WORLD) != 0;
+            player.xBits = in.getLong();
+            player.zBits = in.getLong();
+            state.lastX = Double.longBitsToDouble(player.xBits);
+            state.lastZ = Double.longBitsToDouble(player.zBits);
+            state.pollsSinceEvaluation = (int) varLong(in);
+            state.borderX = Double.longBitsToDouble(in.getLong());
+            state.borderZ = Double.longBitsToDouble(in.getLong());
+            state.borderDistance = Double.longBitsToDouble(in.getLong());
+            state.refreshHoldUntilNanos = clockNanos + zigZag(in);
+            state.switchDueNanos = clockNanos + zigZag(in);
+            state.switchPending = (flags & ZoneTraceRecorder.ATTACH_SWITCH_PENDING) != 0;
+            if ((flags & ZoneTraceRecorder.ATTACH_COMBAT_TAG) != 0) {
+                pvpTimers.schedule(state.combatTag, clockNanos, zigZag(in));
+            }
+            if ((flags & ZoneTraceRecorder.ATTACH_SPAWN_PROTECTION) != 0) {
+                pvpTimers.schedule(state.spawnProtection, clockNanos, zigZag(in));
+            }
+            if (id >= players.length) {
+                players = Arrays.copyOf(players, Math.max(id + 1, players.length * 2));
+            }
+            // Ids of detached players are reused, so this may replace an earlier player.
+            players[id] = player;
+        }
+
+        private void detach(int id) {
+            ReplayedPlayer player = player(id);
+            pvpTimers.cancel(player.state.combatTag);
+            pvpTimers.cancel(player.state.spawnProtection);
+            players[id] = null;
+        }
+
+        private void poll(ByteBuffer in) {
+            ReplayedPlayer player = player(in);
+            player.xBits += zigZag(in);
+            player.zBits += zigZag(in);
+            int flags = in.get();
+            double x = Double.longBitsToDouble(player.xBits);
+            double z = Double.longBitsToDouble(player.zBits);
+            ZoneState state = player.state;
+            polls++;
+
+            // There is no world to compare with; a player last evaluated elsewhere gets no rules instead.
+            GroupRuleTable heldRules = state.groupRules;
+            if (!player.inWorld) {
+                state.groupRules = null;
+            }
+            int refreshInterval = (flags & ZoneTraceRecorder.POLL_TICK_MODE) != 0
+                    ? settings.getZoneTickForcedRefreshTicks() : settings.getZoneForcedRefreshPolls();
+            boolean due = ZoneEvaluator.isEvaluationDue(state, null, x, z, groupRules,
+                    settings.getZoneRecheckMinDistance(), refreshInterval, clockNanos);
+            boolean recordedDue = (flags & ZoneTraceRecorder.POLL_DUE) != 0;
+            if (due != recordedDue) {
+                mismatch("due check", player, "due check recorded " + recordedDue + ", replayed " + due);
+            }
+
+            if (!recordedDue) {
+                state.pollsSinceEvaluation++;
+            } else if ((flags & ZoneTraceRecorder.POLL_EVALUATED) != 0) {
+                evaluations++;
+                player.changed = evaluate(state, x, z);
+                player.inWorld = true;
+            } else if ((flags & ZoneTraceRecorder.POLL_BATCHED) != 0) {
+                evaluations++;
+                if (player.shadow == null) {
+                    player.shadow = new ZoneState();
+                }
+                player.shadow.copyTrackingState(state);
+                player.changed = evaluate(player.shadow, x, z);
+                if (player.shadow.groupRules == null) {
+                    player.shadow.groupRules = heldRules;
+                }
+                player.pending = true;
+            }
+            if (state.groupRules == null) {
+                state.groupRules = heldRules;
+            }
+        }
+
+        private boolean evaluate(ZoneState state, double x, double z) {
+            ZoneEvaluator zoneEvaluator = evaluator();
+            boolean changed = zoneEvaluator.evaluate(state, null, x, z, groupRules, settings.getZoneBorderMargin(),
+                    TimeUnit.MILLISECONDS.toNanos(settings.getZoneBorderDwellMillis()), clockNanos);
+            zoneEvaluator.scheduleNextCheck(state, groupRules, settings.getZoneBorderProbeDistance(),
+                    settings.getPlayerMaxSpeed(), clockNanos);
+            return changed;
+        }
+
+        private void result(ByteBuffer in) {
+            ReplayedPlayer player = player(in);
+            int flags = in.get();
+            String zoneName = zoneNames.name(zone(in));
+            String regionName = regionName((int) varLong(in) - 1);
+            ZoneState state = player.state;
+            results++;
+            if (player.pending) {
+                state.copyTrackingState(player.shadow);
+                player.pending = false;
+                player.inWorld = true;
+            }
+
+            StringBuilder differences = new StringBuilder();
+            boolean recordedChanged = (flags & ZoneTraceRecorder.RESULT_CHANGED) != 0;
+            if (recordedChanged != player.changed) {
+                differences.append(" PvP change recorded ").append(recordedChanged)
+                        .append(", replayed ").append(player.changed).append(';');
+            }
+            boolean recordedPvp = (flags & ZoneTraceRecorder.RESULT_PVP) != 0;
+            if (recordedPvp != state.pvpEnabled) {
+                differences.append(" PvP recorded ").append(recordedPvp)
+                        .append(", replayed ").append(state.pvpEnabled).append(';');
+            }
+            String replayedZone = zoneRegistry.zoneName(state.zoneId);
+            if (!equal(zoneName, replayedZone)) {
+                differences.append(" zone recorded ").append(zoneName)
+                        .append(", replayed ").append(replayedZone).append(';');
+            }
+            String replayedRegion = state.region == null ? null
+                    : state.region.getName() == null ? "" : state.region.getName();
+            if (!equal(regionName, replayedRegion)) {
+                differences.append(" region recorded ").append(regionName)
+                        .append(", replayed ").append(replayedRegion).append(';');
+            }
+            if (differences.length() > 0) {
+                differences.setLength(differences.length() - 1);
+                mismatch("zone result", player, "zone result" + differences);
+            }
+            player.changed = false;
+        }
+
+        private void hit(ByteBuffer in) {
+            ReplayedPlayer attacker = player(in);
+            ReplayedPlayer target = player(in);
+            boolean recordedAllowed = (in.get() & ZoneTraceRecorder.HIT_ALLOWED) != 0;
+            hits++;
+            boolean allowed = PvpDecisions.applyHit(attacker.state, target.state, pvpTimers, settings, clockNanos);
+            if (allowed != recordedAllowed) {
+                mismatch("PvP hit", attacker, "hit on " + describe(target) + " recorded "
+                        + (recordedAllowed ? "allowed" : "blocked") + ", replayed " + (allowed ? "allowed" : "blocked"));
+            }
+        }
+
+        private void kill(ByteBuffer in) {
+            ReplayedPlayer victim = player(in);
+            ReplayedPlayer attacker = player(in);
+            ZonePvpControlConfig.PvpDropMode recorded = ZonePvpControlConfig.PvpDropMode.values()[in.get()];
+            kills++;
+            ZonePvpControlConfig.PvpDropMode dropMode = PvpDecisions.resolveDropMode(victim.state, attacker.state,
+                    groupRules);
+            if (dropMode != recorded) {
+                mismatch("drop mode", victim, "killed by " + describe(attacker) + ", drop mode recorded " + recorded
+                        + ", replayed " + dropMode);
+            }
+        }
+
+        private void protect(ReplayedPlayer player) {
+            PvpDecisions.startSpawnProtection(player.state, pvpTimers, settings, clockNanos);
+        }
+
+        private void ready(ReplayedPlayer player) {
+            PvpDecisions.resolvePvpFlag(player.state, groupRules);
+        }
+
+        private void reset() {
+            for (ReplayedPlayer player : players) {
+                if (player != null && player.inWorld) {
+                    ZoneState state = player.state;
+                    state.zoneId = ZoneRegistry.NO_ZONE;
+                    state.groupId = ZoneRegistry.NO_ZONE;
+                    state.region = null;
+                    state.pvpEnabled = false;
+                    state.switchPending = false;
+                    player.inWorld = false;
+                }
+            }
+        }
+
+        private void raster(int seed, long fingerprint) {
+            Path file = ZoneRaster.fileFor(rasterDirectory, seed, fingerprint);
+            ZoneRaster raster = null;
+            try {
+                raster = ZoneRaster.open(file, seed, fingerprint, settings.getZoneRasterCellSize(),
+                        settings.getZoneRasterRadius(), zoneRegistry);
+            } catch (IOException ex) {
+                rasterWarning = "Could not read zone raster " + file + ": " + ex.getMessage();
+            }
+            if (raster == null && rasterWarning == null) {
+                rasterWarning = "No matching zone raster " + file + "; zones it held resolve from recorded lookups";
+            }
+            evaluator().setRaster(raster);
+        }
+
+        private ZoneEvaluator evaluator() {
+            if (evaluator == null) {
+                ZoneLookupCache zoneCache = settings.getZoneCacheCellSize() > 0
+                        ? new ZoneLookupCache(settings.getZoneCacheCapacity(), settings.getZoneCacheCellSize())
+                        : null;
+                evaluator = new ZoneEvaluator(this::sampleZoneId, zoneCache, zoneRegistry, worldKey);
+            }
+            return evaluator;
+        }
+
+        /**
+         * Stands in for the world generator with the recorded lookups. Every zone the generator
+         * returned was recorded, so a position without one is past the end of the lookups.
+         */
+        private int sampleZoneId(double x, double z) {
+            int recorded = lookups.zoneIdAt(x, z);
+            if (recorded == UNMAPPED) {
+                throw LookupsEnded.INSTANCE;
+            }
+            return zoneId(recorded);
+        }
+
+        /**
+         * Registry zone id of a recorded zone id, registering the zone the first time it comes up.
+         */
+        private int zoneId(int recordedZoneId) {
+            if (recordedZoneId < 0) {
+                return ZoneRegistry.NO_ZONE;
+            }
+            if (recordedZoneId >= zoneIds.length) {
+                int oldLength = zoneIds.length;
+                zoneIds = Arrays.copyOf(zoneIds, Math.max(recordedZoneId + 1, oldLength * 2));
+                Arrays.fill(zoneIds, oldLength, zoneIds.length, UNMAPPED);
+            }
+            int zoneId = zoneIds[recordedZoneId];
+            if (zoneId == UNMAPPED) {
+                zoneId = zoneRegistry.zoneId(zoneNames.name(recordedZoneId));
+                zoneIds[recordedZoneId] = zoneId;
+            }
+            return zoneId;
+        }
+
+        private String regionName(int regionId) {
+            return regionId >= 0 && regionId < regionNames.length ? regionNames[regionId] : null;
+        }
+
+        private ReplayedPlayer player(ByteBuffer in) {
+            return player((int) varLong(in));
+        }
+
+        private ReplayedPlayer player(int id) {
+            ReplayedPlayer player = id >= 0 && id < players.length ? players[id] : null;
+            if (player == null) {
+                throw new IllegalStateException("Record for unknown player " + id + " in world " + label());
+            }
+            return player;
+        }
+
+        private void mismatch(String decision, ReplayedPlayer player, String detail) {
+            mismatches.add(decision, String.format(Locale.ROOT, "%s +%.3f s, player %s: %s",
+                    label(), elapsedSeconds(), describe(player), detail));
+        }
+
+        private static String describe(ReplayedPlayer player) {
+            return player.playerId.getMostSignificantBits() == 0L && player.playerId.getLeastSignificantBits() == 0L
+                    ? "#" + player.id : player.playerId.toString();
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Thrown when the replay needs a zone lookup the trace did not record. Carries no stack trace,
+     * so one shared instance serves every world.
+     */
+    private static final class LookupsEnded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final LookupsEnded INSTANCE = new LookupsEnded();
+
+        private LookupsEnded() {
+            super(null, null, false, false);
+        }
+    }
+}
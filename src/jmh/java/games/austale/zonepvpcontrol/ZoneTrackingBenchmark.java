@@ -0,0 +1,90 @@
+package games.austale.zonepvpcontrol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one zone tracking poll of a world, as run by the plugin's poll loop: every player moves,
+ * and players that are due are evaluated through the lookup cache and the stand-in sampler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ZoneTrackingBenchmark {
+
+    // Cell size used when the cache is on; the shipped default leaves the cache off.
+    private static final int CACHE_CELL_SIZE = 4;
+
+    @Param({"10", "100", "1000", "5000"})
+    int players;
+
+    // Whether zone lookups go through the per-world cell cache, as with zone_cache_cell_size > 0.
+    @Param({"true", "false"})
+    boolean cached;
+
+    // Whether players are scheduled from their distance to the nearest PvP border.
+    @Param({"true", "false"})
+    boolean adaptive;
+
+    private StandInPlayers standIns;
+    private ZoneEvaluator evaluator;
+    private GroupRuleTable groupRules;
+    private double minDistance;
+    private int refreshPolls;
+    private double probeDistance;
+    private double maxSpeed;
+    // Simulated clock, advanced by one poll interval per invocation.
+    private long nowNanos;
+
+    @Setup
+    public void setup() {
+        ZonePvpControlConfig config = new ZonePvpControlConfig();
+        ZoneRegistry zoneRegistry = new ZoneRegistry();
+        StandInZoneSampler sampler = new StandInZoneSampler(zoneRegistry);
+        ZoneLookupCache zoneCache = cached
+                ? new ZoneLookupCache(config.getZoneCacheCapacity(), CACHE_CELL_SIZE)
+                : null;
+        evaluator = new ZoneEvaluator(sampler, zoneCache, zoneRegistry);
+        groupRules = GroupRuleTable.build(config.getRules(), zoneRegistry);
+        minDistance = config.getZoneRecheckMinDistance();
+        refreshPolls = config.getZoneForcedRefreshPolls();
+        probeDistance = adaptive ? config.getZoneBorderProbeDistance() : 0.0;
+        maxSpeed = config.getPlayerMaxSpeed();
+        standIns = new StandInPlayers(players, StandInZoneSampler.RING_WIDTH * 4.0, 42L);
+    }
+
+    @Benchmark
+    public int poll() {
+        int changed = 0;
+        nowNanos += 1_000_000_000L;
+        for (int i = 0; i < standIns.count; i++) {
+            standIns.step(i);
+            ZoneState state = standIns.states[i];
+            double x = standIns.x[i];
+            double z = standIns.z[i];
+            if (!ZoneEvaluator.isEvaluationDue(state, null, x, z, groupRules, minDistance, refreshPolls, nowNanos)) {
+                state.pollsSinceEvaluation++;
+                continue;
+            }
+            if (evaluator.evaluate(state, null, x, z, groupRules)) {
+                changed++;
+            }
+            evaluator.scheduleNextCheck(state, groupRules, probeDistance, maxSpeed, nowNanos);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,146 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reloads the config file in the background when it changes on disk or a reload is requested.
+ * Files are parsed and validated on a dedicated thread, and only a config that passes is handed to
+ * the publisher; a file that fails leaves the current config in place.
+ */
+final class ConfigReloader {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Quiet time after a change before reloading, so an editor's burst of writes reloads once.
+    private static final long DEBOUNCE_MILLIS = 250L;
+
+    private final Path configPath;
+    private final Consumer<ZonePvpControlConfig> publisher;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ZonePVPControl-ConfigReload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watchService;
+    // Modification time of the file last published; reload thread only.
+    private FileTime loadedModifiedTime;
+
+    ConfigReloader(Path configPath, Consumer<ZonePvpControlConfig> publisher) {
+        this.configPath = configPath;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Start watching the config file's directory for changes.
+     */
+    void start() {
+        executor.execute(() -> loadedModifiedTime = modifiedTime());
+        try {
+            watchService = configPath.getFileSystem().newWatchService();
+            configPath.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.atWarning().withCause(e).log("Cannot watch " + configPath + "; use /zonepvp reload after editing it.");
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "ZonePVPControl-ConfigWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Reload the config file now, even if it looks unchanged.
+     *
+     * @return a future completing with a description of the outcome
+     */
+    CompletableFuture<String> reload() {
+        return CompletableFuture.supplyAsync(() -> reloadNow(true), executor);
+    }
+
+    void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // The watcher thread exits either way.
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = touchesConfig(key);
+                // Collect the rest of the burst before reloading.
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= touchesConfig(key);
+                }
+                if (changed) {
+                    executor.execute(() -> reloadNow(false));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shut down.
+        }
+    }
+
+    private boolean touchesConfig(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path name && name.equals(configPath.getFileName())) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+
+    private String reloadNow(boolean force) {
+        FileTime modified = modifiedTime();
+        if (!force && modified != null && modified.equals(loadedModifiedTime)) {
+            return "Config unchanged.";
+        }
+        ZonePvpControlConfig next;
+        try {
+            next = ZonePvpControlConfig.read(configPath);
+        } catch (Exception e) {
+            LOGGER.atWarning().withCause(e).log("Failed to reload ZonePVPControl config; keeping the current one.");
+            return "Config not reloaded, keeping the current one: " + e.getMessage();
+        }
+        List<String> problems = next.validate();
+        if (!problems.isEmpty()) {
+            LOGGER.atWarning().log("ZonePVPControl config not reloaded, keeping the current one: " + problems);
+            return "Config not reloaded, keeping the current one: " + String.join("; ", problems);
+        }
+        loadedModifiedTime = modified;
+        publisher.accept(next);
+        LOGGER.atInfo().log("Reloaded ZonePVPControl config.");
+        return "Config reloaded.";
+    }
+
+    private FileTime modifiedTime() {
+        try {
+            return Files.getLastModifiedTime(configPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.worldgen.zone.ZoneGeneratorResult;
+import com.hypixel.hytale.server.worldgen.zone.ZonePatternGenerator;
+
+/**
+ * {@link ZoneSampler} backed by a world's {@link ZonePatternGenerator}. Reuses a single generator
+ * result, so an instance must stay confined to one thread.
+ */
+final class GeneratorZoneSampler implements ZoneSampler {
+
+    private final ZonePatternGenerator generator;
+    private final int seed;
+    private final ZoneRegistry zoneRegistry;
+    private final ZoneGeneratorResult scratch = new ZoneGeneratorResult();
+
+    GeneratorZoneSampler(ZonePatternGenerator generator, int seed, ZoneRegistry zoneRegistry) {
+        this.generator = generator;
+        this.seed = seed;
+        this.zoneRegistry = zoneRegistry;
+    }
+
+    @Override
+    public int sampleZoneId(double x, double z) {
+        generator.generate(seed, x, z, scratch);
+        return zoneRegistry.zoneId(scratch.getZone());
+    }
+}
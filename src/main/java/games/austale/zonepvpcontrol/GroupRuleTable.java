@@ -0,0 +1,72 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.Set;
+
+/**
+ * {@link ZoneRules} resolved against the zone group ids of a {@link ZoneRegistry}, so PvP and drop
+ * decisions index an array by group id. Rebuilt when new groups are registered or rules change.
+ */
+final class GroupRuleTable {
+
+    // Zone group prefixes that allow PvP when config is missing.
+    private static final Set<String> DEFAULT_PVP_ZONE_GROUPS = Set.of("Zone2", "Zone3", "Zone4");
+
+    private final ZoneRules rules;
+    private final boolean[] pvpByGroup;
+    private final ZonePvpControlConfig.PvpDropMode[] dropModeByGroup;
+
+    private GroupRuleTable(ZoneRules rules, boolean[] pvpByGroup, ZonePvpControlConfig.PvpDropMode[] dropModeByGroup) {
+        this.rules = rules;
+        this.pvpByGroup = pvpByGroup;
+        this.dropModeByGroup = dropModeByGroup;
+    }
+
+    /**
+     * Resolve rules for every group currently known to the registry.
+     *
+     * @param rules    the compiled rules, or null to use the built-in PvP defaults
+     * @param registry the zone registry
+     * @return the resolved table
+     */
+    static GroupRuleTable build(ZoneRules rules, ZoneRegistry registry) {
+        int groupCount = registry.groupCount();
+        boolean[] pvpByGroup = new boolean[groupCount];
+        ZonePvpControlConfig.PvpDropMode[] dropModeByGroup = new ZonePvpControlConfig.PvpDropMode[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            String name = registry.groupName(group);
+            if (rules != null) {
+                pvpByGroup[group] = rules.isPvpZoneEnabled(name);
+                dropModeByGroup[group] = rules.getPvpDropMode(name);
+            } else {
+                pvpByGroup[group] = DEFAULT_PVP_ZONE_GROUPS.contains(name);
+                dropModeByGroup[group] = ZonePvpControlConfig.PvpDropMode.DEFAULT;
+            }
+        }
+        return new GroupRuleTable(rules, pvpByGroup, dropModeByGroup);
+    }
+
+    /**
+     * Whether this table is still valid for the given rules and number of registered groups.
+     */
+    boolean isCurrent(ZoneRules currentRules, int groupCount) {
+        return rules == currentRules && pvpByGroup.length == groupCount;
+    }
+
+    /**
+     * Custom regions that apply in a world; empty when running on the built-in defaults.
+     */
+    RegionIndex regionsFor(String worldKey) {
+        return rules == null ? RegionIndex.EMPTY : rules.regionsFor(worldKey);
+    }
+
+    boolean isPvpGroup(int groupId) {
+        return groupId >= 0 && groupId < pvpByGroup.length && pvpByGroup[groupId];
+    }
+
+    ZonePvpControlConfig.PvpDropMode dropMode(int groupId) {
+        if (groupId < 0 || groupId >= dropModeByGroup.length) {
+            return ZonePvpControlConfig.PvpDropMode.DEFAULT;
+        }
+        return dropModeByGroup[groupId];
+    }
+}
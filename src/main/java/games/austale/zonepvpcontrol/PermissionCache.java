@@ -0,0 +1,102 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.core.permissions.PermissionsModule;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-player cache of operator status so permission checks on hot paths are a single map read.
+ * Entries are populated when a player becomes ready and dropped when they disconnect or the config
+ * is reloaded. Changes to a player's permission groups are not observed; they take effect once the
+ * entry expires after its short TTL.
+ */
+final class PermissionCache {
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Supplier<ZoneRules> rules;
+    private final long ttlNanos;
+
+    PermissionCache(Supplier<ZoneRules> rules, long ttlSeconds) {
+        this.rules = rules;
+        this.ttlNanos = Math.max(1L, ttlSeconds) * 1_000_000_000L;
+    }
+
+    /**
+     * Whether the player belongs to one of the configured operator groups, resolving and caching
+     * the answer if it is missing or expired.
+     *
+     * @param playerId the player's UUID
+     * @return whether the player is an operator
+     */
+    boolean isOperator(UUID playerId) {
+        if (playerId == null) {
+            return false;
+        }
+        Entry entry = entries.get(playerId);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            return entry.operator;
+        }
+        return refresh(playerId);
+    }
+
+    /**
+     * Resolve the player's operator status now and cache it.
+     *
+     * @param playerId the player's UUID
+     * @return whether the player is an operator
+     */
+    boolean refresh(UUID playerId) {
+        boolean operator = resolveOperator(playerId);
+        entries.put(playerId, new Entry(operator, System.nanoTime() + ttlNanos));
+        return operator;
+    }
+
+    void invalidate(UUID playerId) {
+        if (playerId != null) {
+            entries.remove(playerId);
+        }
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Drop every expired entry.
+     */
+    void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private boolean resolveOperator(UUID playerId) {
+        PermissionsModule perms = PermissionsModule.get();
+        if (perms == null) {
+            return false;
+        }
+        ZoneRules currentRules = rules.get();
+        if (currentRules == null) {
+            return false;
+        }
+        try {
+            for (String group : perms.getGroupsForUser(playerId)) {
+                if (currentRules.isOperatorGroup(group)) {
+                    return true;
+                }
+            }
+        } catch (Exception ignored) {
+            return false;
+        }
+        return false;
+    }
+
+    private record Entry(boolean operator, long expiresAtNanos) {
+    }
+}
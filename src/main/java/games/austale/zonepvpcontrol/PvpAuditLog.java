@@ -0,0 +1,278 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Asynchronous audit log of PvP damage decisions.
+ * <p>
+ * World threads record fixed-size events into a preallocated ring buffer of primitive arrays and
+ * never block or allocate: when the buffer is full the event is dropped and counted. A single
+ * background writer drains the buffer in batches into {@code pvp-audit.log}, rotating it once it
+ * exceeds the configured size. If writing fails the log stops, and later events are dropped and
+ * counted too.
+ */
+final class PvpAuditLog {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final String FILE_NAME = "pvp-audit.log";
+    private static final long IDLE_PARK_NANOS = 200_000_000L;
+
+    private static final byte FLAG_BLOCKED = 1;
+    private static final byte FLAG_ATTACKER_PVP = 2;
+    private static final byte FLAG_TARGET_PVP = 4;
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ZoneRegistry zoneRegistry;
+    private final Predicate<UUID> operatorCheck;
+
+    // Ring buffer slots; a slot is readable once published[slot] holds the sequence written to it.
+    private final int mask;
+    private final AtomicLongArray published;
+    private final long[] timestamps;
+    private final long[] attackerMost;
+    private final long[] attackerLeast;
+    private final long[] targetMost;
+    private final long[] targetLeast;
+    private final int[] attackerZones;
+    private final int[] targetZones;
+    private final byte[] flags;
+
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    // Set once the writer stopped on an I/O error.
+    private volatile boolean failed;
+    private Thread writerThread;
+
+    // Writer-thread state.
+    private final StringBuilder line = new StringBuilder(256);
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    PvpAuditLog(Path directory, int capacity, long maxFileBytes, int maxFiles, ZoneRegistry zoneRegistry,
+                Predicate<UUID> operatorCheck) {
+        int size = Integer.highestOneBit(Math.max(64, capacity) - 1) << 1;
+        this.directory = directory;
+        this.maxFileBytes = Math.max(64 * 1024L, maxFileBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.zoneRegistry = zoneRegistry;
+        this.operatorCheck = operatorCheck;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+        this.timestamps = new long[size];
+        this.attackerMost = new long[size];
+        this.attackerLeast = new long[size];
+        this.targetMost = new long[size];
+        this.targetLeast = new long[size];
+        this.attackerZones = new int[size];
+        this.targetZones = new int[size];
+        this.flags = new byte[size];
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "ZonePVPControl-Audit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer after draining any buffered events.
+     */
+    void close() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(2000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    /**
+     * Record a PvP damage decision. Safe to call from any thread; never blocks.
+     */
+    void record(UUID attackerId, UUID targetId, int attackerZoneId, int targetZoneId,
+                boolean attackerPvp, boolean targetPvp, boolean blocked) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        attackerMost[slot] = attackerId.getMostSignificantBits();
+        attackerLeast[slot] = attackerId.getLeastSignificantBits();
+        targetMost[slot] = targetId.getMostSignificantBits();
+        targetLeast[slot] = targetId.getLeastSignificantBits();
+        attackerZones[slot] = attackerZoneId;
+        targetZones[slot] = targetZoneId;
+        flags[slot] = (byte) ((blocked ? FLAG_BLOCKED : 0)
+                | (attackerPvp ? FLAG_ATTACKER_PVP : 0)
+                | (targetPvp ? FLAG_TARGET_PVP : 0));
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Events dropped because the buffer was full or the log had stopped.
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Whether the writer stopped on an I/O error; nothing more is written until the log is recreated.
+     */
+    boolean hasFailed() {
+        return failed;
+    }
+
+    private void runWriter() {
+        try {
+            openWriter();
+            while (running) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            drain();
+        } catch (IOException ex) {
+            failed = true;
+            running = false;
+            LOGGER.atWarning().withCause(ex).log("PvP audit log writer stopped; further PvP audit events are dropped.");
+        } finally {
+            closeWriter();
+        }
+    }
+
+    /**
+     * Write every published event and flush once per batch.
+     *
+     * @return the number of events written
+     */
+    private int drain() throws IOException {
+        int written = 0;
+        long next = tail;
+        while (published.get((int) next & mask) == next) {
+            writeEvent((int) next & mask);
+            next++;
+            tail = next;
+            written++;
+        }
+        if (written > 0) {
+            writer.flush();
+        }
+        return written;
+    }
+
+    private void writeEvent(int slot) throws IOException {
+        UUID attackerId = new UUID(attackerMost[slot], attackerLeast[slot]);
+        UUID targetId = new UUID(targetMost[slot], targetLeast[slot]);
+        byte eventFlags = flags[slot];
+
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(timestamps[slot]))
+                .append(" PvP ").append((eventFlags & FLAG_BLOCKED) != 0 ? "BLOCK" : "ALLOW")
+                .append(" attacker=").append(attackerId)
+                .append(" target=").append(targetId)
+                .append(" attackerZone=");
+        appendZone(attackerZones[slot], (eventFlags & FLAG_ATTACKER_PVP) != 0);
+        line.append(" targetZone=");
+        appendZone(targetZones[slot], (eventFlags & FLAG_TARGET_PVP) != 0);
+        line.append(" attackerOp=").append(operatorCheck.test(attackerId))
+                .append(" targetOp=").append(operatorCheck.test(targetId))
+                .append('\n');
+
+        if (fileBytes + line.length() > maxFileBytes) {
+            rotate();
+        }
+        writer.append(line);
+        fileBytes += line.length();
+    }
+
+    private void appendZone(int zoneId, boolean pvp) {
+        String zoneName = zoneRegistry.zoneName(zoneId);
+        if (zoneName == null) {
+            line.append("unknown");
+            return;
+        }
+        line.append(zoneName).append(" (pvp=").append(pvp).append(')');
+    }
+
+    private void openWriter() throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    /**
+     * Shift pvp-audit.N.log files up by one, dropping the oldest, and start a fresh log.
+     */
+    private void rotate() throws IOException {
+        closeWriter();
+        for (int index = maxFiles - 1; index >= 1; index--) {
+            Path source = index == 1 ? directory.resolve(FILE_NAME) : rotatedFile(index - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotatedFile(index), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles == 1) {
+            Files.deleteIfExists(directory.resolve(FILE_NAME));
+        }
+        openWriter();
+    }
+
+    private Path rotatedFile(int index) {
+        return directory.resolve("pvp-audit." + index + ".log");
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            LOGGER.atWarning().withCause(ex).log("Failed to close PvP audit log.");
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,124 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PvP damage and drop decisions over player zone state, and the PvP timer and flag changes they
+ * depend on, shared by the ECS systems, the trace replay, the load simulator and the benchmarks.
+ */
+final class PvpDecisions {
+
+    private PvpDecisions() {
+    }
+
+    /**
+     * Player-vs-player damage is allowed only when PvP is on for both players. A player without
+     * zone state has not been evaluated yet and is treated as protected.
+     */
+    static boolean isPvpAllowed(ZoneState attacker, ZoneState target) {
+        return attacker != null && hasPvp(attacker) && target != null && hasPvp(target);
+    }
+
+    /**
+     * PvP is on for a player in a PvP zone or region, or anywhere while combat tagged, unless they
+     * are under spawn protection.
+     */
+    static boolean hasPvp(ZoneState state) {
+        return !state.spawnProtection.isRunning() && (state.pvpEnabled || state.combatTag.isRunning());
+    }
+
+    /**
+     * Decide a player-vs-player hit and apply it to the players' PvP timers. Attacking gives up the
+     * attacker's own spawn protection before the hit is decided, and an allowed hit starts or
+     * restarts both players' combat tags.
+     *
+     * @param attacker the attacker's zone state, or null if it has none yet
+     * @param target   the target's zone state, or null if it has none yet
+     * @param timers   the PvP timers of the players' world
+     * @param settings the current config
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return whether the hit is allowed
+     */
+    static boolean applyHit(ZoneState attacker, ZoneState target, TimingWheel timers,
+                            ZonePvpControlConfig settings, long nowNanos) {
+        if (attacker != null) {
+            timers.cancel(attacker.spawnProtection);
+        }
+        boolean allowed = isPvpAllowed(attacker, target);
+        if (allowed && settings.getPvpCombatTagSeconds() > 0) {
+            long tagNanos = TimeUnit.SECONDS.toNanos(settings.getPvpCombatTagSeconds());
+            timers.schedule(attacker.combatTag, nowNanos, tagNanos);
+            timers.schedule(target.combatTag, nowNanos, tagNanos);
+        }
+        return allowed;
+    }
+
+    /**
+     * Protect a player who just joined or respawned from PvP for the configured time.
+     *
+     * @return whether protection started; false when spawn protection is off
+     */
+    static boolean startSpawnProtection(ZoneState state, TimingWheel timers, ZonePvpControlConfig settings,
+                                        long nowNanos) {
+        if (settings.getPvpSpawnProtectionSeconds() <= 0) {
+            return false;
+        }
+        timers.schedule(state.spawnProtection, nowNanos,
+                TimeUnit.SECONDS.toNanos(settings.getPvpSpawnProtectionSeconds()));
+        return true;
+    }
+
+    /**
+     * Re-resolve a player's PvP flag against the current rules, as when they finish loading, without
+     * re-evaluating their zone.
+     */
+    static void resolvePvpFlag(ZoneState state, GroupRuleTable groupRules) {
+        state.groupRules = groupRules;
+        state.pvpEnabled = state.region != null ? state.region.isPvpEnabled() : groupRules.isPvpGroup(state.groupId);
+    }
+
+    /**
+     * Whether a damage decision is written to the audit log at the given level.
+     *
+     * @param log     the audit log, or null while auditing is off
+     * @param blocked whether the hit was blocked
+     */
+    static boolean isAudited(ZonePvpControlConfig.PvpAuditLevel level, PvpAuditLog log, boolean blocked) {
+        return log != null && (level == ZonePvpControlConfig.PvpAuditLevel.ALL
+                || (blocked && level == ZonePvpControlConfig.PvpAuditLevel.BLOCKED));
+    }
+
+    /**
+     * Record a damage decision for which {@link #isAudited} holds, with each player's zone and
+     * effective PvP status.
+     */
+    static void audit(PvpAuditLog log, UUID attackerId, UUID targetId, ZoneState attacker, ZoneState target,
+                      boolean blocked) {
+        log.record(attackerId, targetId,
+                attacker == null ? ZoneRegistry.NO_ZONE : attacker.zoneId,
+                target == null ? ZoneRegistry.NO_ZONE : target.zoneId,
+                attacker != null && hasPvp(attacker), target != null && hasPvp(target), blocked);
+    }
+
+    /**
+     * Drop mode to apply when a player is killed by another player.
+     *
+     * @param victim     the victim's zone state
+     * @param attacker   the attacker's zone state
+     * @param groupRules the current rules by zone group id
+     * @return the drop mode of the victim's custom region if it sets one, else of their zone group,
+     * or DEFAULT if the kill was not PvP
+     */
+    static ZonePvpControlConfig.PvpDropMode resolveDropMode(ZoneState victim, ZoneState attacker,
+                                                            GroupRuleTable groupRules) {
+        if (!isPvpAllowed(attacker, victim)) {
+            return ZonePvpControlConfig.PvpDropMode.DEFAULT;
+        }
+        PvpRegion region = victim.region;
+        if (region != null && region.getDropMode() != null) {
+            return region.getDropMode();
+        }
+        return groupRules.dropMode(victim.groupId);
+    }
+}
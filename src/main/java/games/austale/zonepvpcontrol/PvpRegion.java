@@ -0,0 +1,162 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A custom region compiled from a {@link ZonePvpControlConfig.PvpRegionConfig}: an axis-aligned box
+ * or a simple polygon in the horizontal plane, with the PvP flag and drop mode it imposes.
+ * Immutable.
+ */
+final class PvpRegion {
+
+    private final String name;
+    // Lower-cased world name, or null for every world.
+    private final String world;
+    private final int priority;
+    private final boolean pvpEnabled;
+    // Null when the zone group's drop mode applies.
+    private final ZonePvpControlConfig.PvpDropMode dropMode;
+
+    final double minX;
+    final double minZ;
+    final double maxX;
+    final double maxZ;
+    // Polygon vertices; null for boxes.
+    private final double[] xs;
+    private final double[] zs;
+
+    private PvpRegion(String name, String world, int priority, boolean pvpEnabled,
+                      ZonePvpControlConfig.PvpDropMode dropMode,
+                      double minX, double minZ, double maxX, double maxZ, double[] xs, double[] zs) {
+        this.name = name;
+        this.world = world;
+        this.priority = priority;
+        this.pvpEnabled = pvpEnabled;
+        this.dropMode = dropMode;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.xs = xs;
+        this.zs = zs;
+    }
+
+    /**
+     * Compile a region definition.
+     *
+     * @param config the region definition
+     * @return the region, or null if its shape is invalid
+     */
+    static PvpRegion compile(ZonePvpControlConfig.PvpRegionConfig config) {
+        if (config == null || config.shapeProblem() != null) {
+            return null;
+        }
+        String world = config.getWorld() == null || config.getWorld().isBlank()
+                ? null : config.getWorld().trim().toLowerCase(Locale.ROOT);
+        String dropModeName = config.getDropMode();
+        ZonePvpControlConfig.PvpDropMode dropMode = dropModeName == null || dropModeName.isBlank()
+                ? null : ZonePvpControlConfig.PvpDropMode.fromString(dropModeName);
+
+        if (!config.isPolygon()) {
+            double[] min = config.getMin();
+            double[] max = config.getMax();
+            return new PvpRegion(config.getName(), world, config.getPriority(), config.isPvpEnabled(), dropMode,
+                    min[0], min[1], max[0], max[1], null, null);
+        }
+        List<double[]> points = config.getPoints();
+        double[] xs = new double[points.size()];
+        double[] zs = new double[points.size()];
+        double minX = Double.POSITIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i)[0];
+            zs[i] = points.get(i)[1];
+            minX = Math.min(minX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        return new PvpRegion(config.getName(), world, config.getPriority(), config.isPvpEnabled(), dropMode,
+                minX, minZ, maxX, maxZ, xs, zs);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+    boolean isPvpEnabled() {
+        return pvpEnabled;
+    }
+
+    /**
+     * @return the region's drop mode, or null if the zone group's drop mode applies
+     */
+    ZonePvpControlConfig.PvpDropMode getDropMode() {
+        return dropMode;
+    }
+
+    /**
+     * Whether the region is in a world, given its lower-cased key; regions without a world are in all.
+     */
+    boolean isInWorld(String worldKey) {
+        return world == null || world.equals(worldKey);
+    }
+
+    /**
+     * Whether a position lies inside the region. Box edges are inclusive.
+     */
+    boolean contains(double x, double z) {
+        if (x < minX || x > maxX || z < minZ || z > maxZ) {
+            return false;
+        }
+        if (xs == null) {
+            return true;
+        }
+        // Even-odd ray cast along +X.
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((zs[i] > z) != (zs[j] > z)
+                    && x < (xs[j] - xs[i]) * (z - zs[i]) / (zs[j] - zs[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Horizontal distance from a position, inside or outside the region, to the region's edge.
+     */
+    double distanceToBoundary(double x, double z) {
+        if (xs == null) {
+            if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) {
+                return Math.min(Math.min(x - minX, maxX - x), Math.min(z - minZ, maxZ - z));
+            }
+            double dx = Math.max(Math.max(minX - x, x - maxX), 0.0);
+            double dz = Math.max(Math.max(minZ - z, z - maxZ), 0.0);
+            return Math.sqrt(dx * dx + dz * dz);
+        }
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            nearest = Math.min(nearest, segmentDistanceSquared(x, z, xs[j], zs[j], xs[i], zs[i]));
+        }
+        return Math.sqrt(nearest);
+    }
+
+    private static double segmentDistanceSquared(double x, double z, double ax, double az, double bx, double bz) {
+        double sx = bx - ax;
+        double sz = bz - az;
+        double lengthSquared = sx * sx + sz * sz;
+        double t = lengthSquared == 0.0 ? 0.0 : ((x - ax) * sx + (z - az) * sz) / lengthSquared;
+        t = Math.max(0.0, Math.min(1.0, t));
+        double dx = x - (ax + t * sx);
+        double dz = z - (az + t * sz);
+        return dx * dx + dz * dz;
+    }
+}
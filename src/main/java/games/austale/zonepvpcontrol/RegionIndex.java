@@ -0,0 +1,276 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable grid index over the {@link PvpRegion}s of one world.
+ * <p>
+ * Regions are ranked by descending priority, then config order. Each region is listed by rank in
+ * every cell its bounds overlap on the finest of a few uniform grids where it spans at most
+ * {@link #MAX_CELLS_PER_REGION} cells, so a lookup probes one cell per grid and stops at the first
+ * region containing the position. Cells are found through open-addressing tables of primitive
+ * longs, so lookups neither allocate nor grow with the total number of regions. Regions too large
+ * for even the coarsest grid are kept in a short ranked list checked on every lookup.
+ */
+final class RegionIndex {
+
+    static final RegionIndex EMPTY = new RegionIndex(new PvpRegion[0], new Grid[0], new int[0]);
+
+    // Grid cells are 2^shift blocks on a side: 64, 1024 and 16384 blocks.
+    private static final int[] CELL_SHIFTS = {6, 10, 14};
+    // A region goes on the finest grid where its bounds overlap at most this many cells.
+    private static final int MAX_CELLS_PER_REGION = 64;
+    private static final int END_OF_RUN = -1;
+
+    // Regions by rank.
+    private final PvpRegion[] regions;
+    private final Grid[] grids;
+    // Ranks of regions too large for any grid, ascending.
+    private final int[] unbounded;
+
+    private RegionIndex(PvpRegion[] regions, Grid[] grids, int[] unbounded) {
+        this.regions = regions;
+        this.grids = grids;
+        this.unbounded = unbounded;
+    }
+
+    /**
+     * Index the regions of one world.
+     *
+     * @param ranked   all compiled regions, by rank
+     * @param worldKey the lower-cased world key, or null to index only regions without a world
+     * @return the index
+     */
+    static RegionIndex build(List<PvpRegion> ranked, String worldKey) {
+        List<PvpRegion> regions = new ArrayList<>();
+        for (PvpRegion region : ranked) {
+            if (region.isInWorld(worldKey)) {
+                regions.add(region);
+            }
+        }
+        if (regions.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<Map<Long, List<Integer>>> cellsByGrid = new ArrayList<>();
+        for (int level = 0; level < CELL_SHIFTS.length; level++) {
+            cellsByGrid.add(new HashMap<>());
+        }
+        List<Integer> unbounded = new ArrayList<>();
+        for (int rank = 0; rank < regions.size(); rank++) {
+            PvpRegion region = regions.get(rank);
+            int level = 0;
+            while (level < CELL_SHIFTS.length && cellCount(region, CELL_SHIFTS[level]) > MAX_CELLS_PER_REGION) {
+                level++;
+            }
+            if (level == CELL_SHIFTS.length) {
+                unbounded.add(rank);
+                continue;
+            }
+            int shift = CELL_SHIFTS[level];
+            for (int cellX = cell(region.minX, shift); cellX <= cell(region.maxX, shift); cellX++) {
+                for (int cellZ = cell(region.minZ, shift); cellZ <= cell(region.maxZ, shift); cellZ++) {
+                    // Ranks are added in ascending order.
+                    cellsByGrid.get(level).computeIfAbsent(cellKey(cellX, cellZ), key -> new ArrayList<>()).add(rank);
+                }
+            }
+        }
+
+        List<Grid> grids = new ArrayList<>();
+        for (int level = 0; level < CELL_SHIFTS.length; level++) {
+            if (!cellsByGrid.get(level).isEmpty()) {
+                grids.add(Grid.of(CELL_SHIFTS[level], cellsByGrid.get(level)));
+            }
+        }
+        return new RegionIndex(regions.toArray(new PvpRegion[0]), grids.toArray(new Grid[0]),
+                unbounded.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    boolean isEmpty() {
+        return regions.length == 0;
+    }
+
+    int size() {
+        return regions.length;
+    }
+
+    /**
+     * The highest-ranked region containing a position.
+     *
+     * @return the region, or null if the position is in none
+     */
+    PvpRegion regionAt(double x, double z) {
+        if (regions.length == 0) {
+            return null;
+        }
+        int best = Integer.MAX_VALUE;
+        for (Grid grid : grids) {
+            int start = grid.find(cellKey(cell(x, grid.shift), cell(z, grid.shift)));
+            if (start == END_OF_RUN) {
+                continue;
+            }
+            for (int i = start; grid.cellRegions[i] != END_OF_RUN; i++) {
+                int rank = grid.cellRegions[i];
+                if (rank >= best) {
+                    break;
+                }
+                if (regions[rank].contains(x, z)) {
+                    best = rank;
+                    break;
+                }
+            }
+        }
+        for (int rank : unbounded) {
+            if (rank >= best) {
+                break;
+            }
+            if (regions[rank].contains(x, z)) {
+                best = rank;
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : regions[best];
+    }
+
+    /**
+     * The highest-ranked region with a name.
+     *
+     * @return the region, or null if none has that name
+     */
+    PvpRegion named(String name) {
+        for (PvpRegion region : regions) {
+            if (name.equals(region.getName())) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Distance from a position to the nearest region edge, looking no further than a limit. Only
+     * the grid cells within the limit are visited.
+     *
+     * @param x     the world X coordinate
+     * @param z     the world Z coordinate
+     * @param limit the largest distance of interest, in blocks
+     * @return the distance to the nearest region edge, or the limit if none is closer
+     */
+    double distanceToNearestBoundary(double x, double z, double limit) {
+        if (regions.length == 0) {
+            return limit;
+        }
+        double nearest = limit;
+        for (int rank : unbounded) {
+            nearest = Math.min(nearest, regions[rank].distanceToBoundary(x, z));
+        }
+        for (Grid grid : grids) {
+            int maxCellX = cell(x + limit, grid.shift);
+            int maxCellZ = cell(z + limit, grid.shift);
+            for (int cellX = cell(x - limit, grid.shift); cellX <= maxCellX; cellX++) {
+                for (int cellZ = cell(z - limit, grid.shift); cellZ <= maxCellZ; cellZ++) {
+                    int start = grid.find(cellKey(cellX, cellZ));
+                    if (start == END_OF_RUN) {
+                        continue;
+                    }
+                    for (int i = start; grid.cellRegions[i] != END_OF_RUN; i++) {
+                        nearest = nearestBoundary(regions[grid.cellRegions[i]], x, z, nearest);
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private static double nearestBoundary(PvpRegion region, double x, double z, double nearest) {
+        // Skip regions whose bounds are already further away than the nearest edge found.
+        double dx = Math.max(Math.max(region.minX - x, x - region.maxX), 0.0);
+        double dz = Math.max(Math.max(region.minZ - z, z - region.maxZ), 0.0);
+        if (dx * dx + dz * dz >= nearest * nearest) {
+            return nearest;
+        }
+        return Math.min(nearest, region.distanceToBoundary(x, z));
+    }
+
+    private static long cellCount(PvpRegion region, int shift) {
+        return ((long) cell(region.maxX, shift) - cell(region.minX, shift) + 1)
+                * ((long) cell(region.maxZ, shift) - cell(region.minZ, shift) + 1);
+    }
+
+    private static int cell(double coordinate, int shift) {
+        return (int) Math.floor(coordinate) >> shift;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * One uniform grid: an open-addressing table from cell key to the start of the cell's run of
+     * ascending ranks in {@code cellRegions}, each run terminated by {@link #END_OF_RUN}.
+     */
+    private static final class Grid {
+        final int shift;
+        private final long[] cellKeys;
+        private final int[] cellStarts;
+        private final int tableMask;
+        final int[] cellRegions;
+
+        private Grid(int shift, long[] cellKeys, int[] cellStarts, int[] cellRegions) {
+            this.shift = shift;
+            this.cellKeys = cellKeys;
+            this.cellStarts = cellStarts;
+            this.tableMask = cellKeys.length - 1;
+            this.cellRegions = cellRegions;
+        }
+
+        static Grid of(int shift, Map<Long, List<Integer>> cells) {
+            int tableSize = Integer.highestOneBit(Math.max(2, cells.size()) * 2 - 1) << 1;
+            long[] cellKeys = new long[tableSize];
+            int[] cellStarts = new int[tableSize];
+            Arrays.fill(cellStarts, END_OF_RUN);
+            int entries = 0;
+            for (List<Integer> ranks : cells.values()) {
+                entries += ranks.size() + 1;
+            }
+            int[] cellRegions = new int[entries];
+            int next = 0;
+            for (Map.Entry<Long, List<Integer>> cell : cells.entrySet()) {
+                long key = cell.getKey();
+                int slot = mix(key) & (tableSize - 1);
+                while (cellStarts[slot] != END_OF_RUN) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                cellKeys[slot] = key;
+                cellStarts[slot] = next;
+                for (int rank : cell.getValue()) {
+                    cellRegions[next++] = rank;
+                }
+                cellRegions[next++] = END_OF_RUN;
+            }
+            return new Grid(shift, cellKeys, cellStarts, cellRegions);
+        }
+
+        /**
+         * @return the start of the cell's run, or {@link #END_OF_RUN} if the cell has no regions
+         */
+        int find(long key) {
+            int slot = mix(key) & tableMask;
+            while (true) {
+                int start = cellStarts[slot];
+                if (start == END_OF_RUN || cellKeys[slot] == key) {
+                    return start;
+                }
+                slot = (slot + 1) & tableMask;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package games.austale.zonepvpcontrol;
+
+/**
+ * Hashed timing wheel for per-player PvP timers, advanced by the world tick.
+ * <p>
+ * Time is divided into {@link #SLOT_NANOS} slots hashed onto a ring of {@link #SLOTS} buckets, each
+ * an intrusive doubly linked list of timers. Scheduling, rescheduling and cancelling a timer link
+ * or unlink one node, and advancing visits only the buckets of the slots that elapsed, expiring the
+ * timers due in them; a timer further out than one turn of the ring stays put until its turn comes
+ * round. Timers are state objects rather than tasks: a timer is running until it expires or is
+ * cancelled, so nothing is allocated per schedule and no callback runs on expiry. Instances are
+ * confined to the owning world thread and are not thread-safe.
+ */
+final class TimingWheel {
+
+    // 50 ms slots on a 512-slot ring: one turn covers 25.6 s.
+    static final long SLOT_NANOS = 50_000_000L;
+    static final int SLOTS = 512;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    // Sentinel heads of each bucket's circular list.
+    private final Timer[] buckets = new Timer[SLOTS];
+    private final long originNanos;
+    // Last slot whose timers have been expired.
+    private long currentSlot;
+    private int running;
+
+    TimingWheel(long originNanos) {
+        this.originNanos = originNanos;
+        for (int i = 0; i < SLOTS; i++) {
+            Timer head = new Timer();
+            head.previous = head;
+            head.next = head;
+            buckets[i] = head;
+        }
+    }
+
+    /**
+     * Start a timer, or restart it if it is already running.
+     *
+     * @param timer      the timer
+     * @param nowNanos   the current {@link System#nanoTime()}
+     * @param delayNanos how long until the timer expires
+     */
+    void schedule(Timer timer, long nowNanos, long delayNanos) {
+        cancel(timer);
+        // Round up, and never into a slot that has already been expired.
+        long deadlineSlot = Math.max(currentSlot + 1L,
+                Math.floorDiv(nowNanos + delayNanos - originNanos + SLOT_NANOS - 1L, SLOT_NANOS));
+        timer.deadlineSlot = deadlineSlot;
+        timer.deadlineNanos = originNanos + deadlineSlot * SLOT_NANOS;
+        Timer head = buckets[(int) (deadlineSlot & SLOT_MASK)];
+        timer.previous = head.previous;
+        timer.next = head;
+        head.previous.next = timer;
+        head.previous = timer;
+        running++;
+    }
+
+    /**
+     * Stop a timer if it is running.
+     */
+    void cancel(Timer timer) {
+        if (timer.next == null) {
+            return;
+        }
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        running--;
+    }
+
+    /**
+     * Expire every timer due by now.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    void advance(long nowNanos) {
+        long targetSlot = Math.floorDiv(nowNanos - originNanos, SLOT_NANOS);
+        if (targetSlot <= currentSlot) {
+            return;
+        }
+        if (running == 0) {
+            currentSlot = targetSlot;
+            return;
+        }
+        // After a stall longer than one turn, each bucket needs visiting only once.
+        long firstSlot = Math.max(currentSlot + 1L, targetSlot - SLOT_MASK);
+        for (long slot = firstSlot; slot <= targetSlot; slot++) {
+            Timer head = buckets[(int) (slot & SLOT_MASK)];
+            Timer timer = head.next;
+            while (timer != head) {
+                Timer next = timer.next;
+                if (timer.deadlineSlot <= targetSlot) {
+                    cancel(timer);
+                }
+                timer = next;
+            }
+        }
+        currentSlot = targetSlot;
+    }
+
+    /**
+     * Number of running timers.
+     */
+    int size() {
+        return running;
+    }
+
+    long getOriginNanos() {
+        return originNanos;
+    }
+
+    /**
+     * When a running timer expires: the start of the first slot after its deadline.
+     */
+    long deadlineNanos(Timer timer) {
+        return originNanos + timer.deadlineSlot * SLOT_NANOS;
+    }
+
+    /**
+     * A timer node, owned by whatever it times and reused across schedules.
+     */
+    static final class Timer {
+        private Timer previous;
+        private Timer next;
+        private long deadlineSlot;
+        private long deadlineNanos;
+
+        /**
+         * Whether the timer is scheduled and has not yet expired or been cancelled.
+         */
+        boolean isRunning() {
+            return next != null;
+        }
+
+        /**
+         * The {@link System#nanoTime()} from which the timer expires on the next advance; only
+         * meaningful while it is running.
+         */
+        long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.WorldConfig;
+import com.hypixel.hytale.server.core.universe.world.worldgen.IWorldGen;
+import com.hypixel.hytale.server.core.universe.world.worldgen.WorldGenLoadException;
+import com.hypixel.hytale.server.core.universe.world.worldgen.provider.IWorldGenProvider;
+import com.hypixel.hytale.server.worldgen.chunk.ChunkGenerator;
+import com.hypixel.hytale.server.worldgen.zone.ZonePatternGenerator;
+import games.austale.zonepvpcontrol.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Per-world state resolved once when a world is first seen and dropped when it unloads, so the
+ * periodic zone poll only does per-player work.
+ */
+final class WorldZoneContext {
+
+    private final World world;
+    private final String worldKey;
+    // Updated when a config reload changes the world allowlist.
+    private volatile boolean enabled;
+    private final boolean worldPvpEnabled;
+    private final int seed;
+    // Null when zone lookups are not cached.
+    private final ZoneLookupCache zoneCache;
+    private final ZoneRegistry zoneRegistry;
+
+    // Resolved lazily on the world thread; see resolveEvaluator().
+    private ZoneEvaluator evaluator;
+    private boolean generatorResolved;
+    // Baked zone layout, installed on the world thread once loaded.
+    private ZoneRaster raster;
+
+    // Poll passes and the per-tick budget; world thread only.
+    private final ZoneTrackingSchedule<Player> schedule = new ZoneTrackingSchedule<>(System.nanoTime());
+    // Poll pass evaluated off the world thread; owned by the worker while its evaluation runs.
+    private final ZoneEvaluationBatch evaluationBatch = new ZoneEvaluationBatch();
+    // Null when no batch is in flight; world thread only.
+    private CompletableFuture<Void> batchEvaluation;
+
+    // Combat tags and spawn protection of players in this world, advanced every tick; world thread only.
+    private final TimingWheel pvpTimers = new TimingWheel(System.nanoTime());
+
+    // Streams of the zone trace being recorded; null when not recording. The lookup stream goes
+    // with the evaluator.
+    private ZoneTraceRecorder.WorldTrace trace;
+    private ZoneTraceRecorder.LookupTrace lookupTrace;
+
+    // Players whose PvP flag changed this tick, notified once with their final state; world thread only.
+    private final List<QueuedNotification> queuedNotifications = new ArrayList<>();
+
+    // Cost of each tick (or poll slice) of zone tracking in this world.
+    private final LatencyHistogram trackingTimes = new LatencyHistogram();
+    // Tracking work since the last flush to the plugin metrics; world thread only.
+    private long pendingTrackingNanos;
+    private int pendingEvaluated;
+    private int pendingSkipped;
+    private long flushedSamplerCalls;
+
+    WorldZoneContext(World world, String worldKey, boolean enabled, boolean worldPvpEnabled,
+                     ZoneLookupCache zoneCache, ZoneRegistry zoneRegistry) {
+        this.world = world;
+        this.worldKey = worldKey;
+        this.enabled = enabled;
+        this.worldPvpEnabled = worldPvpEnabled;
+        this.seed = (int) world.getWorldConfig().getSeed();
+        this.zoneCache = zoneCache;
+        this.zoneRegistry = zoneRegistry;
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    String getWorldKey() {
+        return worldKey;
+    }
+
+    /**
+     * Whether the world passes the configured world allowlist.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable zone tracking in the world.
+     *
+     * @return whether this changed the world's status
+     */
+    boolean setEnabled(boolean enabled) {
+        boolean changed = this.enabled != enabled;
+        this.enabled = enabled;
+        return changed;
+    }
+
+    /**
+     * Whether the world's own config allows PvP.
+     */
+    boolean isWorldPvpEnabled() {
+        return worldPvpEnabled;
+    }
+
+    int getSeed() {
+        return seed;
+    }
+
+    ZoneLookupCache getZoneCache() {
+        return zoneCache;
+    }
+
+    /**
+     * Resolve the world's zone evaluator over its zone pattern generator, memoizing the result.
+     * Worlds whose generator is not a {@link ChunkGenerator} are remembered as having none; a
+     * generator that fails to load is retried on the next call.
+     *
+     * @return the zone evaluator, or null if the world has no zone generator
+     */
+    ZoneEvaluator resolveEvaluator() {
+        if (generatorResolved) {
+            return evaluator;
+        }
+
+        ZonePatternGenerator zoneGenerator;
+        try {
+            zoneGenerator = loadZoneGenerator(world, seed);
+        } catch (WorldGenLoadException e) {
+            return null;
+        }
+
+        if (zoneGenerator != null) {
+            evaluator = new ZoneEvaluator(new GeneratorZoneSampler(zoneGenerator, seed, zoneRegistry),
+                    zoneCache, zoneRegistry, worldKey);
+            evaluator.setRaster(raster);
+            evaluator.setLookupTrace(lookupTrace);
+        }
+        generatorResolved = true;
+        return evaluator;
+    }
+
+    /**
+     * Use a baked zone layout for lookups inside its area. World thread only.
+     */
+    void installRaster(ZoneRaster raster) {
+        this.raster = raster;
+        if (evaluator != null) {
+            evaluator.setRaster(raster);
+        }
+        if (trace != null) {
+            trace.raster(seed, raster.getFingerprint());
+        }
+    }
+
+    /**
+     * Load a world's zone pattern generator.
+     *
+     * @return the generator, or null if the world's generator is not a {@link ChunkGenerator}
+     * @throws WorldGenLoadException if the world generator fails to load
+     */
+    static ZonePatternGenerator loadZoneGenerator(World world, int seed) throws WorldGenLoadException {
+        WorldConfig worldConfig = world.getWorldConfig();
+        IWorldGen worldGen = worldConfig.getWorldGenProvider().getGenerator();
+        if (worldGen instanceof ChunkGenerator chunkGenerator) {
+            return chunkGenerator.getZonePatternGenerator(seed);
+        }
+        return null;
+    }
+
+    /**
+     * Name a world's generator provider and generator types, for {@link ZoneRaster#fingerprint}.
+     *
+     * @throws WorldGenLoadException if the world generator fails to load
+     */
+    static String generatorType(World world) throws WorldGenLoadException {
+        IWorldGenProvider provider = world.getWorldConfig().getWorldGenProvider();
+        return provider.getClass().getName() + "/" + provider.getGenerator().getClass().getName();
+    }
+
+    TimingWheel getPvpTimers() {
+        return pvpTimers;
+    }
+
+    /**
+     * Start or stop recording the world into the given zone trace, or hand over what was recorded
+     * since the last call. Waits while a worker holds the evaluator. World thread only.
+     *
+     * @param recorder   the trace being recorded, or null for none
+     * @param settings   the config in effect
+     * @param groupRules the current rules by zone group id
+     * @param nowNanos   the current {@link System#nanoTime()}
+     */
+    void syncTrace(ZoneTraceRecorder recorder, ZonePvpControlConfig settings, GroupRuleTable groupRules,
+                   long nowNanos) {
+        if (isBatchRunning()) {
+            return;
+        }
+        if (trace != null) {
+            if (trace.isFor(recorder) && trace.isOpen() && lookupTrace.isOpen()) {
+                trace.flushIfStale(nowNanos);
+                lookupTrace.flushIfStale(nowNanos);
+                return;
+            }
+            trace.close();
+            lookupTrace.close();
+            trace = null;
+            lookupTrace = null;
+            if (evaluator != null) {
+                evaluator.setLookupTrace(null);
+            }
+        }
+        if (recorder == null || !recorder.isRecording()) {
+            return;
+        }
+        trace = recorder.openWorld(world, worldKey, pvpTimers, zoneRegistry, nowNanos);
+        trace.config(settings);
+        trace.rules(groupRules);
+        if (raster != null) {
+            trace.raster(seed, raster.getFingerprint());
+        }
+        // Lookups the cache already answers were sampled before recording started.
+        lookupTrace = recorder.openLookups(worldKey, zoneRegistry);
+        if (zoneCache != null) {
+            lookupTrace.lookups(zoneCache);
+        }
+        if (evaluator != null) {
+            evaluator.setLookupTrace(lookupTrace);
+        }
+    }
+
+    /**
+     * The world's zone trace event stream. World thread only.
+     *
+     * @return the stream, or null when not recording
+     */
+    ZoneTraceRecorder.WorldTrace getTrace() {
+        return trace;
+    }
+
+    LatencyHistogram getTrackingTimes() {
+        return trackingTimes;
+    }
+
+    void addTrackingNanos(long nanos) {
+        pendingTrackingNanos += nanos;
+    }
+
+    void recordEvaluated() {
+        pendingEvaluated++;
+    }
+
+    void recordSkipped() {
+        pendingSkipped++;
+    }
+
+    /**
+     * Record the tracking work done since the last flush as one tick and add its counts
+     * to the plugin metrics. Ticks that did no tracking work are not recorded.
+     */
+    void flushTrackingMetrics(ZonePvpMetrics metrics) {
+        if (pendingTrackingNanos > 0L) {
+            trackingTimes.record(pendingTrackingNanos);
+            pendingTrackingNanos = 0L;
+        }
+        metrics.add(ZonePvpMetrics.Counter.PLAYERS_EVALUATED, pendingEvaluated);
+        metrics.add(ZonePvpMetrics.Counter.PLAYERS_SKIPPED, pendingSkipped);
+        pendingEvaluated = 0;
+        pendingSkipped = 0;
+        // The evaluator's count is only safe to read while no worker is using it.
+        if (evaluator != null && !isBatchRunning()) {
+            long samplerCalls = evaluator.getSamplerCalls();
+            metrics.add(ZonePvpMetrics.Counter.GENERATOR_CALLS, samplerCalls - flushedSamplerCalls);
+            flushedSamplerCalls = samplerCalls;
+        }
+    }
+
+    ZoneTrackingSchedule<Player> getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Whether a new poll pass is due: the previous one has finished, its batch (if any) has been
+     * taken back and its interval has elapsed.
+     */
+    boolean isPassDue(long nowNanos, long intervalNanos) {
+        return batchEvaluation == null && schedule.isPassDue(nowNanos, intervalNanos);
+    }
+
+    /**
+     * Hand the snapshotted batch and the world's evaluator to a worker. Until the batch is taken
+     * back, neither may be used on the world thread.
+     */
+    void submitBatch(ZoneEvaluator evaluator, Executor executor) {
+        if (evaluationBatch.size() > 0) {
+            batchEvaluation = CompletableFuture.runAsync(() -> evaluationBatch.evaluate(evaluator), executor);
+        }
+    }
+
+    /**
+     * Whether a worker is still evaluating this world's batch.
+     */
+    boolean isBatchRunning() {
+        return batchEvaluation != null && !batchEvaluation.isDone();
+    }
+
+    /**
+     * Take back a batch whose evaluation has finished.
+     *
+     * @return the finished evaluation, whose batch is now owned by the world thread again, or null
+     * if no batch is in flight or it is still running
+     */
+    CompletableFuture<Void> takeFinishedBatch() {
+        CompletableFuture<Void> evaluation = batchEvaluation;
+        if (evaluation == null || !evaluation.isDone()) {
+            return null;
+        }
+        batchEvaluation = null;
+        return evaluation;
+    }
+
+    ZoneEvaluationBatch getEvaluationBatch() {
+        return evaluationBatch;
+    }
+
+    /**
+     * Queue a PvP status notification for a player, unless one is already queued this tick.
+     */
+    void queueNotification(Player player, UUID playerId, ZoneState state) {
+        if (!state.notificationQueued) {
+            state.notificationQueued = true;
+            queuedNotifications.add(new QueuedNotification(player, playerId, state));
+        }
+    }
+
+    /**
+     * Hand every queued notification to the sender and clear the queue.
+     */
+    void drainNotifications(NotificationSender sender) {
+        if (queuedNotifications.isEmpty()) {
+            return;
+        }
+        for (QueuedNotification notification : queuedNotifications) {
+            notification.state.notificationQueued = false;
+            sender.send(this, notification.player, notification.playerId, notification.state);
+        }
+        queuedNotifications.clear();
+    }
+
+    @FunctionalInterface
+    interface NotificationSender {
+        void send(WorldZoneContext context, Player player, UUID playerId, ZoneState state);
+    }
+
+    private record QueuedNotification(Player player, UUID playerId, ZoneState state) {
+    }
+}
@@ -0,0 +1,147 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One world's poll pass evaluated off the world thread.
+ * <p>
+ * The world thread snapshots the players due for evaluation into primitive arrays, together with
+ * a shadow copy of each player's zone state. A worker then evaluates the shadows, touching neither
+ * entities nor the live zone state, and the world thread copies the results back and sends the
+ * resulting notifications. The batch and its world's {@link ZoneEvaluator} are handed between
+ * threads through the future that runs the evaluation, so each is used by one thread at a time.
+ * Arrays are reused from pass to pass.
+ */
+final class ZoneEvaluationBatch {
+
+    private Player[] players = new Player[0];
+    private UUID[] playerIds = new UUID[0];
+    private ZoneState[] states = new ZoneState[0];
+    private ZoneState[] shadows = new ZoneState[0];
+    private double[] x = new double[0];
+    private double[] z = new double[0];
+    private boolean[] changed = new boolean[0];
+    private int size;
+
+    // Settings captured when the pass started, so the whole pass is evaluated against one snapshot.
+    private ZonePvpControlConfig settings;
+    private World world;
+    private GroupRuleTable groupRules;
+    private double margin;
+    private long dwellNanos;
+    private double probeDistance;
+    private double maxSpeed;
+    private long nowNanos;
+
+    /**
+     * Start a new pass; world thread only.
+     */
+    void reset(World world, GroupRuleTable groupRules, ZonePvpControlConfig settings, long nowNanos) {
+        this.settings = settings;
+        this.world = world;
+        this.groupRules = groupRules;
+        this.margin = settings.getZoneBorderMargin();
+        this.dwellNanos = TimeUnit.MILLISECONDS.toNanos(settings.getZoneBorderDwellMillis());
+        this.probeDistance = settings.getZoneBorderProbeDistance();
+        this.maxSpeed = settings.getPlayerMaxSpeed();
+        this.nowNanos = nowNanos;
+        size = 0;
+    }
+
+    /**
+     * Add a player due for evaluation; world thread only.
+     */
+    void add(Player player, UUID playerId, ZoneState state, double playerX, double playerZ) {
+        if (size == players.length) {
+            grow();
+        }
+        players[size] = player;
+        playerIds[size] = playerId;
+        states[size] = state;
+        shadows[size].copyTrackingState(state);
+        x[size] = playerX;
+        z[size] = playerZ;
+        changed[size] = false;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether the pass was started under the given config and rules; world thread only.
+     */
+    boolean isSnapshotOf(ZonePvpControlConfig settings, GroupRuleTable groupRules) {
+        return this.settings == settings && this.groupRules == groupRules;
+    }
+
+    /**
+     * When the pass started; its players are checked and evaluated as of this time.
+     */
+    long getNowNanos() {
+        return nowNanos;
+    }
+
+    /**
+     * Evaluate every player in the batch; on the worker.
+     */
+    void evaluate(ZoneEvaluator evaluator) {
+        for (int i = 0; i < size; i++) {
+            ZoneState shadow = shadows[i];
+            changed[i] = evaluator.evaluate(shadow, world, x[i], z[i], groupRules, margin, dwellNanos, nowNanos);
+            evaluator.scheduleNextCheck(shadow, groupRules, probeDistance, maxSpeed, nowNanos);
+        }
+    }
+
+    /**
+     * Copy the results back into the live zone states and release the players; world thread only.
+     *
+     * @param sink receives each player with their updated state
+     */
+    void apply(ResultSink sink) {
+        for (int i = 0; i < size; i++) {
+            states[i].copyTrackingState(shadows[i]);
+            sink.accept(players[i], playerIds[i], states[i], changed[i]);
+        }
+        clear();
+    }
+
+    /**
+     * Drop the batch without applying it, releasing the players; world thread only.
+     */
+    void clear() {
+        Arrays.fill(players, 0, size, null);
+        Arrays.fill(playerIds, 0, size, null);
+        Arrays.fill(states, 0, size, null);
+        size = 0;
+        settings = null;
+        world = null;
+        groupRules = null;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, players.length * 2);
+        players = Arrays.copyOf(players, capacity);
+        playerIds = Arrays.copyOf(playerIds, capacity);
+        states = Arrays.copyOf(states, capacity);
+        int oldCapacity = shadows.length;
+        shadows = Arrays.copyOf(shadows, capacity);
+        for (int i = oldCapacity; i < capacity; i++) {
+            shadows[i] = new ZoneState();
+        }
+        x = Arrays.copyOf(x, capacity);
+        z = Arrays.copyOf(z, capacity);
+        changed = Arrays.copyOf(changed, capacity);
+    }
+
+    @FunctionalInterface
+    interface ResultSink {
+        void accept(Player player, UUID playerId, ZoneState state, boolean pvpChanged);
+    }
+}
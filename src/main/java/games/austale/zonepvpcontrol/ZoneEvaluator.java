@@ -0,0 +1,366 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Per-world zone evaluation core: resolves zone ids through the lookup cache and sampler, checks
+ * custom regions ahead of zone groups, and applies the result to a player's {@link ZoneState}. Kept
+ * free of entity and world access so it can be driven from the tracking loop and from benchmarks
+ * alike. Used by one thread at a time: the owning world thread, or a zone evaluation worker while
+ * it holds the world's poll pass.
+ */
+final class ZoneEvaluator {
+
+    // Radius of the innermost ring probed for PvP borders; each further ring doubles it.
+    private static final double FIRST_PROBE_RING = 16.0;
+    // Largest gap in blocks between probe points on a ring, within the point limits below.
+    private static final double PROBE_SPACING = 128.0;
+    private static final int MIN_PROBE_POINTS = 8;
+    private static final int MAX_PROBE_POINTS = 32;
+    // Fraction of a clean ring's radius trusted as border-free at most.
+    private static final double PROBE_CONFIDENCE = 0.9;
+    // Players near a border are re-probed only after moving this fraction of the probe distance.
+    private static final double REPROBE_FRACTION = 0.125;
+    // Points checked around a player for the border margin.
+    private static final int MARGIN_POINTS = 8;
+    // PvP flag of a position with neither a zone nor a region.
+    private static final int PVP_UNKNOWN = -1;
+
+    private final ZoneSampler sampler;
+    // Null when zone lookups are not cached.
+    private final ZoneLookupCache zoneCache;
+    private final ZoneRegistry zoneRegistry;
+    // Key custom regions are matched against; null matches only regions without a world.
+    private final String worldKey;
+    // Baked zone layout consulted before the cache; null until one is installed. Installed by the
+    // world thread, possibly while a worker is evaluating.
+    private volatile ZoneRaster raster;
+    // Custom regions of this world under the rules they were resolved from.
+    private RegionIndex regions = RegionIndex.EMPTY;
+    private GroupRuleTable regionsRules;
+    private long samplerCalls;
+    // Records every sampled zone while a zone trace is recording; null otherwise.
+    private ZoneTraceRecorder.LookupTrace lookupTrace;
+
+    ZoneEvaluator(ZoneSampler sampler, ZoneLookupCache zoneCache, ZoneRegistry zoneRegistry) {
+        this(sampler, zoneCache, zoneRegistry, null);
+    }
+
+    ZoneEvaluator(ZoneSampler sampler, ZoneLookupCache zoneCache, ZoneRegistry zoneRegistry, String worldKey) {
+        this.sampler = sampler;
+        this.zoneCache = zoneCache;
+        this.zoneRegistry = zoneRegistry;
+        this.worldKey = worldKey;
+    }
+
+    /**
+     * Decide whether a player's zone must be re-evaluated. Players who stayed in the same world
+     * under the same rules are skipped while they remain inside the disc last probed free of PvP
+     * borders, or, without one, until they moved the minimum distance. A forced refresh still
+     * happens once the given number of polls (or ticks) has elapsed and the player could have
+     * reached the border, and a pending PvP switch is checked again once its dwell time is up.
+     *
+     * @param state           the player's zone state
+     * @param world           the world the player is in
+     * @param x               the player's X coordinate
+     * @param z               the player's Z coordinate
+     * @param groupRules      the current rules by zone group id
+     * @param minDistance     minimum horizontal movement in blocks; 0 or less always re-evaluates
+     *                        players with no known border distance
+     * @param refreshInterval polls or ticks between forced refreshes
+     * @param nowNanos        the current {@link System#nanoTime()}
+     * @return whether the zone should be evaluated
+     */
+    static boolean isEvaluationDue(ZoneState state, World world, double x, double z, GroupRuleTable groupRules,
+                                   double minDistance, int refreshInterval, long nowNanos) {
+        if (state.lastWorld != world || state.groupRules != groupRules) {
+            return true;
+        }
+        if (state.switchPending && nowNanos - state.switchDueNanos >= 0) {
+            return true;
+        }
+        if (state.pollsSinceEvaluation + 1 >= refreshInterval && nowNanos - state.refreshHoldUntilNanos >= 0) {
+            return true;
+        }
+        if (state.borderDistance > 0.0) {
+            double dx = x - state.borderX;
+            double dz = z - state.borderZ;
+            return dx * dx + dz * dz >= state.borderDistance * state.borderDistance;
+        }
+        if (minDistance <= 0.0) {
+            return true;
+        }
+        double dx = x - state.lastX;
+        double dz = z - state.lastZ;
+        return dx * dx + dz * dz >= minDistance * minDistance;
+    }
+
+    /**
+     * Evaluate a player's zone at a position and update their state, switching PvP on the border.
+     *
+     * @param state      the player's zone state
+     * @param world      the world the player is in
+     * @param x          the player's X coordinate
+     * @param z          the player's Z coordinate
+     * @param groupRules the current rules by zone group id
+     * @return whether the player's PvP flag changed
+     */
+    boolean evaluate(ZoneState state, World world, double x, double z, GroupRuleTable groupRules) {
+        return evaluate(state, world, x, z, groupRules, 0.0, 0L, 0L);
+    }
+
+    /**
+     * Evaluate a player's zone at a position and update their state. A custom region containing the
+     * position decides the PvP flag, otherwise the zone's group does. A zone or region with a
+     * different PvP flag only takes effect once the player is the margin past its border and has
+     * stayed there for the dwell time; until then the player keeps their current zone and region.
+     * Changes of world or rules take effect at once.
+     *
+     * @param state      the player's zone state
+     * @param world      the world the player is in
+     * @param x          the player's X coordinate
+     * @param z          the player's Z coordinate
+     * @param groupRules the current rules by zone group id
+     * @param margin     how far past a border the player must be, in blocks; 0 or less for none
+     * @param dwellNanos how long the player must stay past a border; 0 or less for none
+     * @param nowNanos   the current {@link System#nanoTime()}
+     * @return whether the player's PvP flag changed
+     */
+    boolean evaluate(ZoneState state, World world, double x, double z, GroupRuleTable groupRules,
+                     double margin, long dwellNanos, long nowNanos) {
+        boolean reset = state.lastWorld != world || state.groupRules != groupRules;
+        if (reset) {
+            // Borders probed in another world or under other rules no longer apply.
+            state.borderDistance = -1.0;
+            state.switchPending = false;
+        }
+        state.lastWorld = world;
+        state.lastX = x;
+        state.lastZ = z;
+        state.pollsSinceEvaluation = 0;
+
+        PvpRegion region = regions(groupRules).regionAt(x, z);
+        int zoneId = zoneIdAt(x, z);
+        if (zoneId == ZoneRegistry.NO_ZONE && region == null) {
+            return false;
+        }
+        if (zoneId == state.zoneId && region == state.region && !reset) {
+            // Same zone and region under the same rules; the PvP flag cannot have changed.
+            state.switchPending = false;
+            return false;
+        }
+        int groupId = zoneId == ZoneRegistry.NO_ZONE ? ZoneRegistry.NO_ZONE : zoneRegistry.groupOf(zoneId);
+        boolean pvpEnabled = region != null ? region.isPvpEnabled() : groupRules.isPvpGroup(groupId);
+        if (pvpEnabled != state.pvpEnabled && !reset
+                && !isSwitchSettled(state, x, z, pvpEnabled, groupRules, margin, dwellNanos, nowNanos)) {
+            return false;
+        }
+        state.zoneId = zoneId;
+        state.groupId = groupId;
+        state.region = region;
+        state.groupRules = groupRules;
+        state.switchPending = false;
+
+        if (pvpEnabled == state.pvpEnabled) {
+            return false;
+        }
+        state.pvpEnabled = pvpEnabled;
+        // The player crossed a border, so their probed disc is out of date.
+        state.borderDistance = -1.0;
+        return true;
+    }
+
+    /**
+     * Whether a player past a PvP border may switch to the new PvP flag: every point the margin away
+     * has that flag, and the player has been past the margin for the dwell time. Starts the dwell
+     * time on the first call and restarts it whenever the player falls back within the margin.
+     */
+    private boolean isSwitchSettled(ZoneState state, double x, double z, boolean pvpEnabled,
+                                    GroupRuleTable groupRules, double margin, long dwellNanos, long nowNanos) {
+        if (margin > 0.0) {
+            int target = pvpEnabled ? 1 : 0;
+            for (int i = 0; i < MARGIN_POINTS; i++) {
+                double angle = 2.0 * Math.PI * i / MARGIN_POINTS;
+                int pvp = pvpAt(x + Math.cos(angle) * margin, z + Math.sin(angle) * margin, groupRules);
+                if (pvp != PVP_UNKNOWN && pvp != target) {
+                    state.switchPending = false;
+                    return false;
+                }
+            }
+        }
+        if (dwellNanos <= 0L) {
+            return true;
+        }
+        if (!state.switchPending) {
+            state.switchPending = true;
+            state.switchDueNanos = nowNanos + dwellNanos;
+            return false;
+        }
+        return nowNanos - state.switchDueNanos >= 0;
+    }
+
+    /**
+     * Schedule a player's next check from their distance to the nearest PvP border. The distance is
+     * found by probing rings of doubling radius around the player, and only re-probed once the
+     * player has left the disc found border-free by the previous probe (or, close to a border, has
+     * moved a fraction of the probe distance), so players near borders keep being checked on every
+     * move without being probed each time. Custom region edges count as borders at their exact
+     * distance.
+     *
+     * @param state         the player's zone state, just evaluated
+     * @param groupRules    the current rules by zone group id
+     * @param probeDistance the outermost ring radius in blocks; 0 or less disables probing
+     * @param maxSpeed      the fastest a player can move, in blocks per second
+     * @param nowNanos      the current {@link System#nanoTime()}
+     */
+    void scheduleNextCheck(ZoneState state, GroupRuleTable groupRules, double probeDistance, double maxSpeed,
+                           long nowNanos) {
+        if (probeDistance <= 0.0 || state.zoneId == ZoneRegistry.NO_ZONE) {
+            state.borderDistance = -1.0;
+            state.refreshHoldUntilNanos = nowNanos;
+            return;
+        }
+
+        double dx = state.lastX - state.borderX;
+        double dz = state.lastZ - state.borderZ;
+        double moved = Math.sqrt(dx * dx + dz * dz);
+        double reprobeDistance = Math.max(state.borderDistance, probeDistance * REPROBE_FRACTION);
+        if (state.borderDistance < 0.0 || moved >= reprobeDistance) {
+            state.borderX = state.lastX;
+            state.borderZ = state.lastZ;
+            state.borderDistance = Math.min(
+                    probeBorderDistance(state.lastX, state.lastZ, state.pvpEnabled, groupRules, probeDistance),
+                    regions(groupRules).distanceToNearestBoundary(state.lastX, state.lastZ, probeDistance));
+            moved = 0.0;
+        }
+
+        double remaining = Math.max(0.0, state.borderDistance - moved);
+        state.refreshHoldUntilNanos = maxSpeed > 0.0 ? nowNanos + (long) (remaining / maxSpeed * 1e9) : nowNanos;
+    }
+
+    private double probeBorderDistance(double x, double z, boolean pvpEnabled, GroupRuleTable groupRules,
+                                       double probeDistance) {
+        double clearRadius = 0.0;
+        double clearChord = 0.0;
+        double radius = Math.min(FIRST_PROBE_RING, probeDistance);
+        int target = pvpEnabled ? 1 : 0;
+        while (true) {
+            int points = (int) Math.ceil(2.0 * Math.PI * radius / PROBE_SPACING);
+            points = Math.max(MIN_PROBE_POINTS, Math.min(MAX_PROBE_POINTS, points));
+            for (int i = 0; i < points; i++) {
+                double angle = 2.0 * Math.PI * i / points;
+                if (pvpAt(x + Math.cos(angle) * radius, z + Math.sin(angle) * radius, groupRules) != target) {
+                    return borderFreeDistance(clearRadius, clearChord);
+                }
+            }
+            clearRadius = radius;
+            clearChord = 2.0 * radius * Math.sin(Math.PI / points);
+            if (radius >= probeDistance) {
+                return borderFreeDistance(clearRadius, clearChord);
+            }
+            radius = Math.min(radius * 2.0, probeDistance);
+        }
+    }
+
+    /**
+     * Distance trusted as border-free after a clean ring of the given radius. A narrow lobe of
+     * another zone can reach inside the ring between two of its probe points, so the ring is only
+     * trusted to its radius less the chord between neighbouring points.
+     */
+    private double borderFreeDistance(double clearRadius, double clearChord) {
+        // Cached and baked lookups resolve a whole cell to its center, so a border may sit up to a cell closer.
+        ZoneRaster baked = raster;
+        double cellSize = Math.max(zoneCache == null ? 0.0 : zoneCache.getCellSize(),
+                baked == null ? 0.0 : baked.getCellSize());
+        return Math.max(0.0, Math.min(clearRadius * PROBE_CONFIDENCE, clearRadius - clearChord) - cellSize);
+    }
+
+    /**
+     * PvP flag at a position: 1 or 0 from the region containing it or else its zone's group, or
+     * {@link #PVP_UNKNOWN} if it has neither.
+     */
+    private int pvpAt(double x, double z, GroupRuleTable groupRules) {
+        PvpRegion region = regions(groupRules).regionAt(x, z);
+        if (region != null) {
+            return region.isPvpEnabled() ? 1 : 0;
+        }
+        int zoneId = zoneIdAt(x, z);
+        if (zoneId == ZoneRegistry.NO_ZONE) {
+            return PVP_UNKNOWN;
+        }
+        return groupRules.isPvpGroup(zoneRegistry.groupOf(zoneId)) ? 1 : 0;
+    }
+
+    /**
+     * Custom regions of this world under the given rules, re-resolved when the rules change.
+     */
+    private RegionIndex regions(GroupRuleTable groupRules) {
+        if (groupRules != regionsRules) {
+            regions = groupRules.regionsFor(worldKey);
+            regionsRules = groupRules;
+        }
+        return regions;
+    }
+
+    /**
+     * Resolve the zone id at a position, consulting the baked raster, then the lookup cache, before
+     * the sampler.
+     *
+     * @param x the world X coordinate
+     * @param z the world Z coordinate
+     * @return the zone id at the position, or {@link ZoneRegistry#NO_ZONE} if none
+     */
+    int zoneIdAt(double x, double z) {
+        ZoneRaster baked = raster;
+        if (baked != null) {
+            int zoneId = baked.zoneIdAt(x, z);
+            if (zoneId != ZoneRegistry.NO_ZONE) {
+                return zoneId;
+            }
+        }
+        if (zoneCache == null) {
+            samplerCalls++;
+            int zoneId = sampler.sampleZoneId(x, z);
+            if (lookupTrace != null) {
+                lookupTrace.lookup(x, z, zoneId);
+            }
+            return zoneId;
+        }
+
+        long cellKey = zoneCache.cellKey(x, z);
+        int zoneId = zoneCache.get(cellKey);
+        if (zoneId != ZoneRegistry.NO_ZONE) {
+            return zoneId;
+        }
+
+        // Sample the cell center so every position in the cell resolves to the same zone.
+        samplerCalls++;
+        double centerX = zoneCache.cellCenterX(cellKey);
+        double centerZ = zoneCache.cellCenterZ(cellKey);
+        zoneId = sampler.sampleZoneId(centerX, centerZ);
+        if (lookupTrace != null) {
+            lookupTrace.lookup(centerX, centerZ, zoneId);
+        }
+        zoneCache.put(cellKey, zoneId);
+        return zoneId;
+    }
+
+    void setRaster(ZoneRaster raster) {
+        this.raster = raster;
+    }
+
+    /**
+     * Record sampled zones into a zone trace, or stop with null. Only while no worker holds the evaluator.
+     */
+    void setLookupTrace(ZoneTraceRecorder.LookupTrace lookupTrace) {
+        this.lookupTrace = lookupTrace;
+    }
+
+    ZoneLookupCache getZoneCache() {
+        return zoneCache;
+    }
+
+    long getSamplerCalls() {
+        return samplerCalls;
+    }
+}
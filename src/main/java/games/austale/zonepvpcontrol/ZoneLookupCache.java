@@ -0,0 +1,201 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.Arrays;
+
+/**
+ * Bounded per-world cache mapping quantized (x, z) cells to the {@link ZoneRegistry} id of the zone
+ * resolved for that cell.
+ * <p>
+ * Slots are recycled with clock (second-chance) eviction and indexed by an open-addressing
+ * table of primitive longs, so a lookup is a hash probe that does not allocate. Instances are
+ * confined to the owning world thread and are not thread-safe.
+ */
+final class ZoneLookupCache {
+
+    private static final int EMPTY = -1;
+
+    private final int cellSize;
+    private final int capacity;
+
+    // Slot storage, recycled by the clock hand once full.
+    private final long[] slotKeys;
+    private final int[] slotZoneIds;
+    private final boolean[] slotReferenced;
+    private int size;
+    private int hand;
+
+    // Linear-probing index from cell key to slot.
+    private final int[] table;
+    private final int tableMask;
+
+    private long hits;
+    private long misses;
+
+    ZoneLookupCache(int capacity, int cellSize) {
+        this.capacity = Math.max(16, capacity);
+        this.cellSize = Math.max(1, cellSize);
+        this.slotKeys = new long[this.capacity];
+        this.slotZoneIds = new int[this.capacity];
+        this.slotReferenced = new boolean[this.capacity];
+        int tableSize = Integer.highestOneBit(this.capacity - 1) << 2;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * Quantize a world position to its cell key.
+     */
+    long cellKey(double x, double z) {
+        int cellX = Math.floorDiv((int) Math.floor(x), cellSize);
+        int cellZ = Math.floorDiv((int) Math.floor(z), cellSize);
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * World X coordinate of the center of a cell, used as the sample point for the generator.
+     */
+    double cellCenterX(long key) {
+        return (double) (key >> 32) * cellSize + cellSize * 0.5;
+    }
+
+    /**
+     * World Z coordinate of the center of a cell, used as the sample point for the generator.
+     */
+    double cellCenterZ(long key) {
+        return (double) (int) key * cellSize + cellSize * 0.5;
+    }
+
+    /**
+     * @return the cached zone id, or {@link ZoneRegistry#NO_ZONE} on a miss
+     */
+    int get(long key) {
+        int index = find(key);
+        if (index == EMPTY) {
+            misses++;
+            return ZoneRegistry.NO_ZONE;
+        }
+        int slot = table[index];
+        slotReferenced[slot] = true;
+        hits++;
+        return slotZoneIds[slot];
+    }
+
+    void put(long key, int zoneId) {
+        if (zoneId == ZoneRegistry.NO_ZONE) {
+            return;
+        }
+        int existing = find(key);
+        if (existing != EMPTY) {
+            slotZoneIds[table[existing]] = zoneId;
+            return;
+        }
+
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            slot = evict();
+        }
+        slotKeys[slot] = key;
+        slotZoneIds[slot] = zoneId;
+        slotReferenced[slot] = false;
+
+        int index = mix(key) & tableMask;
+        while (table[index] != EMPTY) {
+            index = (index + 1) & tableMask;
+        }
+        table[index] = slot;
+    }
+
+    void clear() {
+        Arrays.fill(table, EMPTY);
+        Arrays.fill(slotReferenced, false);
+        size = 0;
+        hand = 0;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Cell key held in a slot, for slots below {@link #size()}.
+     */
+    long slotKey(int slot) {
+        return slotKeys[slot];
+    }
+
+    /**
+     * Zone id held in a slot, for slots below {@link #size()}.
+     */
+    int slotZoneId(int slot) {
+        return slotZoneIds[slot];
+    }
+
+    int getCellSize() {
+        return cellSize;
+    }
+
+    private int find(long key) {
+        int index = mix(key) & tableMask;
+        while (true) {
+            int slot = table[index];
+            if (slot == EMPTY) {
+                return EMPTY;
+            }
+            if (slotKeys[slot] == key) {
+                return index;
+            }
+            index = (index + 1) & tableMask;
+        }
+    }
+
+    /**
+     * Advance the clock hand to the first slot without a second chance and unlink it from the index.
+     */
+    private int evict() {
+        while (slotReferenced[hand]) {
+            slotReferenced[hand] = false;
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+        }
+        int victim = hand;
+        hand = hand + 1 == capacity ? 0 : hand + 1;
+        removeIndex(find(slotKeys[victim]));
+        return victim;
+    }
+
+    /**
+     * Remove a table entry using backward-shift deletion so probe chains stay intact.
+     */
+    private void removeIndex(int index) {
+        if (index == EMPTY) {
+            return;
+        }
+        int gap = index;
+        int next = (gap + 1) & tableMask;
+        while (table[next] != EMPTY) {
+            int home = mix(slotKeys[table[next]]) & tableMask;
+            // Shift the entry back if its home is not within (gap, next].
+            if (((next - home) & tableMask) >= ((next - gap) & tableMask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,62 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Players in each zone group of each world, moved between groups as their published
+ * {@link ZonePvpStatus} changes, so counts are O(1) and listings O(result) rather than a scan of
+ * every player. Players outside any zone, or in a world without a key, are not indexed.
+ */
+final class ZoneOccupancyIndex {
+
+    // Players by world key, then zone group id.
+    private final Map<String, Map<Integer, Set<UUID>>> playersByWorld = new ConcurrentHashMap<>();
+
+    /**
+     * Move a player from the group of one status to that of another; either may be null.
+     */
+    void move(UUID playerId, ZonePvpStatus from, ZonePvpStatus to) {
+        if (from != null && to != null && from.zoneGroupId() == to.zoneGroupId()
+                && Objects.equals(from.world(), to.world())) {
+            return;
+        }
+        if (from != null) {
+            Set<UUID> players = playersOf(from.world(), from.zoneGroupId());
+            if (players != null) {
+                players.remove(playerId);
+            }
+        }
+        if (to != null && to.world() != null && to.zoneGroupId() != ZoneRegistry.NO_ZONE) {
+            playersByWorld.computeIfAbsent(to.world(), world -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(to.zoneGroupId(), group -> ConcurrentHashMap.newKeySet())
+                    .add(playerId);
+        }
+    }
+
+    int count(String worldKey, int groupId) {
+        Set<UUID> players = playersOf(worldKey, groupId);
+        return players == null ? 0 : players.size();
+    }
+
+    List<UUID> players(String worldKey, int groupId) {
+        Set<UUID> players = playersOf(worldKey, groupId);
+        return players == null ? List.of() : List.copyOf(players);
+    }
+
+    Set<String> worlds() {
+        return Set.copyOf(playersByWorld.keySet());
+    }
+
+    private Set<UUID> playersOf(String worldKey, int groupId) {
+        if (worldKey == null) {
+            return null;
+        }
+        Map<Integer, Set<UUID>> groups = playersByWorld.get(worldKey);
+        return groups == null ? null : groups.get(groupId);
+    }
+}
@@ -8,10 +8,20 @@ import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.component.CommandBuffer;
 import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.dependency.Dependency;
+import com.hypixel.hytale.component.dependency.Order;
+import com.hypixel.hytale.component.dependency.SystemDependency;
 import com.hypixel.hytale.component.system.RefChangeSystem;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
 
 import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
+import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.asset.type.gameplay.DeathConfig;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.modules.entity.damage.Damage;
@@ -19,53 +29,90 @@ import com.hypixel.hytale.server.core.modules.entity.damage.DeathComponent;
 import com.hypixel.hytale.server.core.modules.entity.damage.DamageEventSystem;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
-import com.hypixel.hytale.server.core.permissions.PermissionsModule;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.WorldConfig;
+import com.hypixel.hytale.server.core.universe.world.events.RemoveWorldEvent;
 
-import com.hypixel.hytale.server.core.universe.world.worldgen.IWorldGen;
-import com.hypixel.hytale.server.core.universe.world.worldgen.provider.IWorldGenProvider;
-import com.hypixel.hytale.server.core.universe.world.worldgen.WorldGenLoadException;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
-import com.hypixel.hytale.server.worldgen.chunk.ChunkGenerator;
-import com.hypixel.hytale.server.worldgen.zone.Zone;
-import com.hypixel.hytale.server.worldgen.zone.ZoneGeneratorResult;
-import com.hypixel.hytale.server.worldgen.zone.ZonePatternGenerator;
 import com.hypixel.hytale.server.core.util.NotificationUtil;
 import com.hypixel.hytale.protocol.packets.interface_.NotificationStyle;
 
 import games.austale.zonepvpcontrol.commands.ExampleCommand;
+import games.austale.zonepvpcontrol.commands.ZonePvpCommand;
 import games.austale.zonepvpcontrol.events.ExampleEvent;
+import games.austale.zonepvpcontrol.util.Capabilities;
+import games.austale.zonepvpcontrol.util.DataPaths;
+import games.austale.zonepvpcontrol.util.LatencyHistogram;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ZonePVPControl plugin main class.
  */
 public class ZonePVPControl extends JavaPlugin {
 
-    // How often to scan player positions and update zone PvP flags.
-    private static final long ZONE_POLL_SECONDS = 1L;
-    // Zone group prefixes that allow PvP when config is missing.
-    private static final Set<String> PVP_ZONE_GROUPS = Set.of("Zone2", "Zone3", "Zone4");
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // How often each player's zone is checked in POLL mode; the pass is spread over the ticks in between.
+    private static final long ZONE_POLL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    // How often to sweep per-player state left behind by missed disconnects or world changes.
+    private static final long STATE_SWEEP_SECONDS = 60L;
 
     // Cache of last known zone state per player.
     private final Map<UUID, ZoneState> lastZoneByPlayer = new ConcurrentHashMap<>();
     // Set of players who have finished loading and are ready for notifications.
     private final Set<UUID> readyPlayers = ConcurrentHashMap.newKeySet();
-    // Scheduled task for periodic zone checks.
-    private ScheduledFuture<?> zoneTask;
-    // Configurable world allowlist/behavior.
-    private ZonePvpControlConfig config;
+    // Dense ids for zones and zone groups seen so far.
+    private final ZoneRegistry zoneRegistry = new ZoneRegistry();
+    // Rules resolved by zone group id; rebuilt as groups are registered.
+    private volatile GroupRuleTable groupRuleTable;
+    // Published zone and PvP status per player, served to other plugins.
+    private final ZoneStatusIndex statusIndex = new ZoneStatusIndex(zoneRegistry);
+    // Service handed to other plugins; null until the plugin is set up.
+    private static volatile ZonePvpService service;
+    // Per-world state resolved once when the world is first seen.
+    private final Map<World, WorldZoneContext> worldContexts = new ConcurrentHashMap<>();
+    // Scheduled task evicting stale per-player state.
+    private ScheduledFuture<?> sweepTask;
+    // Configurable world allowlist/behavior. Replaced whole on reload, so code using several settings
+    // together reads it once into a local.
+    private volatile ZonePvpControlConfig config;
+    // Reloads the config when its file changes or on request.
+    private ConfigReloader configReloader;
+    // Cached operator status per player.
+    private PermissionCache permissionCache;
+    // Background audit log of PvP decisions; null while the configured audit level is OFF.
+    private volatile PvpAuditLog auditLog;
+    // Loads baked zone rasters for worlds; null when rasters are disabled.
+    private ZoneRasterLoader rasterLoader;
+    // Evaluates POLL mode passes off the world threads; null when zones are evaluated on the world threads.
+    private ExecutorService zoneEvaluationPool;
+    // Zone trace being recorded; null when tracing is off.
+    private volatile ZoneTraceRecorder traceRecorder;
+    // Counters reported by the stats command.
+    private final ZonePvpMetrics metrics = new ZonePvpMetrics();
 
     public ZonePVPControl(@Nonnull JavaPluginInit init) {
         super(init);
@@ -74,22 +121,54 @@ public class ZonePVPControl extends JavaPlugin {
     @Override
     protected void setup() {
         config = ZonePvpControlConfig.load(this);
+        configReloader = new ConfigReloader(ZonePvpControlConfig.resolveConfigPath(this), this::applyConfig);
+        // Per-player zone state lives on player entities so ECS systems can query it directly.
+        ZoneState.setComponentType(getEntityStoreRegistry().registerComponent(ZoneState.class, ZoneState::new));
+        permissionCache = new PermissionCache(() -> config.getRules(), config.getOperatorCacheTtlSeconds());
+        if (config.getPvpAuditLevel() != ZonePvpControlConfig.PvpAuditLevel.OFF) {
+            auditLog = createAuditLog(config);
+        }
+        if (config.getZoneRasterRadius() > 0) {
+            rasterLoader = new ZoneRasterLoader(resolveRasterDirectory(), config.getZoneRasterRadius(),
+                    config.getZoneRasterCellSize(), zoneRegistry);
+        }
+        if (config.getZoneEvaluationThreads() > 0) {
+            zoneEvaluationPool = createZoneEvaluationPool(config.getZoneEvaluationThreads());
+        }
+        if (config.isZoneTraceEnabled()) {
+            traceRecorder = createTraceRecorder(config);
+        }
         // Register example command and ready events used for client notifications.
         this.getCommandRegistry().registerCommand(new ExampleCommand("example", "An example command"));
+        this.getCommandRegistry().registerCommand(new ZonePvpCommand(this));
         this.getEventRegistry().registerGlobal(PlayerReadyEvent.class, ExampleEvent::onPlayerReady);
         this.getEventRegistry().registerGlobal(PlayerReadyEvent.class, this::onPlayerReady);
+        this.getEventRegistry().registerGlobal(PlayerDisconnectEvent.class, this::onPlayerDisconnect);
+        this.getEventRegistry().registerGlobal(RemoveWorldEvent.class, this::onRemoveWorld);
+        // ECS system attaches zone state to player entities and unindexes it when they leave.
+        getEntityStoreRegistry().registerSystem(new ZoneStateAttachSystem(this));
         // ECS system enforces PvP rules at the damage layer.
         getEntityStoreRegistry().registerSystem(new ZonePvpDamageSystem(this));
         // ECS system applies PVP-specific drop rules on death.
         getEntityStoreRegistry().registerSystem(new ZonePvpDeathDropSystem(this));
+        // ECS systems track zones on the world tick: time-budgeted poll slices, or per-entity in TICK mode.
+        getEntityStoreRegistry().registerSystem(new ZoneTrackingSchedulerSystem(this));
+        getEntityStoreRegistry().registerSystem(new ZoneTrackingSystem(this));
+        service = statusIndex;
     }
 
     /**
      * Called when the plugin is started.
      */
     public void start() {
-        // Begin periodic polling of player zones.
-        startZoneTracking();
+        startStateSweep();
+        if (auditLog != null) {
+            auditLog.start();
+        }
+        if (traceRecorder != null) {
+            startTraceRecorder(traceRecorder);
+        }
+        configReloader.start();
     }
 
     /**
@@ -97,110 +176,667 @@ public class ZonePVPControl extends JavaPlugin {
      */
     public void shutdown() {
         // Clean-up code runs when plugin unloads
+        service = null;
+        configReloader.close();
+        if (auditLog != null) {
+            // Flush buffered audit events before the plugin goes away.
+            auditLog.close();
+        }
+        if (rasterLoader != null) {
+            rasterLoader.close();
+        }
+        if (zoneEvaluationPool != null) {
+            zoneEvaluationPool.shutdownNow();
+        }
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
     }
 
     /**
-     * Start the scheduled task for periodic zone checks.
+     * The zone and PvP status of online players, for other plugins.
+     *
+     * @return the service, or null if the plugin is not set up
      */
-    private void startZoneTracking() {
-        if (zoneTask != null) {
-            return;
-        }
+    public static ZonePvpService getService() {
+        return service;
+    }
 
-        // Poll all worlds and run zone checks on each world thread.
-        zoneTask = HytaleServer.SCHEDULED_EXECUTOR.scheduleAtFixedRate(() -> {
-            Universe universe = Universe.get();
-            for (World world : universe.getWorlds().values()) {
-                if (!world.isAlive()) {
-                    continue;
-                }
+    /**
+     * Reload the config file in the background, keeping the current config if the file is invalid.
+     *
+     * @return a future completing with a description of the outcome
+     */
+    public CompletableFuture<String> reloadConfig() {
+        return configReloader.reload();
+    }
 
-                if (!isWorldEnabled(world)) {
-                    continue;
+    /**
+     * Publish a reloaded config. Hot paths pick it up on their next read of the config field; cached
+     * operator status is dropped so it is resolved against the new operator groups, and worlds are
+     * enabled or disabled to match the new allowlist.
+     *
+     * @param next the validated config to switch to
+     */
+    private void applyConfig(ZonePvpControlConfig next) {
+        List<String> restartRequired = config.restartRequiredChanges(next);
+        if (!restartRequired.isEmpty()) {
+            LOGGER.atWarning().log("Config changes to " + restartRequired + " take effect after a restart.");
+        }
+        boolean auditing = next.getPvpAuditLevel() != ZonePvpControlConfig.PvpAuditLevel.OFF;
+        if (auditing && auditLog == null) {
+            PvpAuditLog log = createAuditLog(next);
+            log.start();
+            auditLog = log;
+        }
+        ZoneTraceRecorder recorder = traceRecorder;
+        if (next.isZoneTraceEnabled() && recorder == null) {
+            recorder = createTraceRecorder(next);
+            startTraceRecorder(recorder);
+            traceRecorder = recorder;
+        } else if (!next.isZoneTraceEnabled() && recorder != null) {
+            // World threads hand over their last records on their next tick.
+            traceRecorder = null;
+            recorder.close();
+            LOGGER.atInfo().log("Stopped recording zone trace " + recorder.getFile());
+        }
+        config = next;
+        PvpAuditLog staleAuditLog = auditLog;
+        if (!auditing && staleAuditLog != null) {
+            // Decisions already past the level check are counted as dropped by the closed log.
+            auditLog = null;
+            staleAuditLog.close();
+        }
+        permissionCache.invalidateAll();
+        for (WorldZoneContext context : worldContexts.values()) {
+            boolean enabled = next.isWorldEnabled(context.getWorldKey());
+            if (!context.setEnabled(enabled)) {
+                continue;
+            }
+            if (enabled) {
+                if (rasterLoader != null) {
+                    rasterLoader.load(context);
                 }
+            } else {
+                // Untracked worlds fall back to PvP off, as for players never evaluated there.
+                World world = context.getWorld();
+                world.execute(() -> resetZoneStates(world));
+            }
+        }
+    }
 
-                world.execute(() -> trackWorldZones(world));
+    /**
+     * Return the zone state of every player last evaluated in a world to that of a new player. World
+     * thread only.
+     */
+    private void resetZoneStates(World world) {
+        WorldZoneContext context = worldContexts.get(world);
+        if (context != null && context.getTrace() != null) {
+            context.getTrace().reset();
+        }
+        for (Map.Entry<UUID, ZoneState> entry : lastZoneByPlayer.entrySet()) {
+            ZoneState state = entry.getValue();
+            if (state.lastWorld == world) {
+                statusIndex.remove(entry.getKey(), state);
+                state.zoneId = ZoneRegistry.NO_ZONE;
+                state.groupId = ZoneRegistry.NO_ZONE;
+                state.region = null;
+                state.pvpEnabled = false;
+                state.switchPending = false;
+                state.lastWorld = null;
             }
-        }, ZONE_POLL_SECONDS, ZONE_POLL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ExecutorService createZoneEvaluationPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ZonePVPControl-ZoneEvaluation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ZoneTraceRecorder createTraceRecorder(ZonePvpControlConfig settings) {
+        String timestamp = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").format(LocalDateTime.now());
+        return new ZoneTraceRecorder(DataPaths.resolveDataPath(this).resolve("zone-trace-" + timestamp + ".bin"),
+                settings.getZoneTraceMaxFileMb() * 1024L * 1024L);
+    }
+
+    private static void startTraceRecorder(ZoneTraceRecorder recorder) {
+        try {
+            recorder.start();
+        } catch (IOException ex) {
+            LOGGER.atWarning().withCause(ex).log("Failed to start zone trace " + recorder.getFile() + ".");
+        }
+    }
+
+    private PvpAuditLog createAuditLog(ZonePvpControlConfig settings) {
+        return new PvpAuditLog(DataPaths.resolveDataPath(this), settings.getPvpAuditBufferSize(),
+                settings.getPvpAuditMaxFileMb() * 1024L * 1024L, settings.getPvpAuditMaxFiles(),
+                zoneRegistry, this::isOperator);
+    }
+
+    /**
+     * Start the scheduled task that evicts state of players who are no longer online, zone state not
+     * touched by zone tracking within the configured idle time and contexts of unloaded worlds,
+     * catching anything a disconnect or world removal did not clean up.
+     */
+    private void startStateSweep() {
+        if (sweepTask != null) {
+            return;
+        }
+
+        sweepTask = HytaleServer.SCHEDULED_EXECUTOR.scheduleAtFixedRate(() -> {
+            // Drop contexts of worlds that unloaded without a remove event.
+            worldContexts.values().removeIf(context -> !context.getWorld().isAlive());
+            Universe universe = Universe.get();
+            long idleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getPlayerStateIdleSeconds()));
+            long now = System.nanoTime();
+            lastZoneByPlayer.entrySet().removeIf(entry -> {
+                ZoneState state = entry.getValue();
+                return universe.getPlayer(entry.getKey()) == null
+                        || now - state.lastSeenNanos > idleNanos
+                        || (state.lastWorld != null && !state.lastWorld.isAlive());
+            });
+            statusIndex.retainAll(lastZoneByPlayer.keySet());
+            readyPlayers.removeIf(playerId -> universe.getPlayer(playerId) == null);
+            permissionCache.evictExpired();
+            LOGGER.atInfo().log("Live player state: " + getLiveStateCounts());
+        }, STATE_SWEEP_SECONDS, STATE_SWEEP_SECONDS, TimeUnit.SECONDS);
 
         @SuppressWarnings("unchecked")
-        ScheduledFuture<Void> task = (ScheduledFuture<Void>) zoneTask;
+        ScheduledFuture<Void> task = (ScheduledFuture<Void>) sweepTask;
         getTaskRegistry().registerTask(task);
     }
 
     /**
-     * Track player zones for a single world.
+     * Number of live entries in each per-player and per-world structure, for confirming that memory
+     * stays flat over long uptimes.
      *
-     * @param world the world to track
+     * @return entry counts keyed by structure name
      */
-    private void trackWorldZones(World world) {
-        // Use the world generator's zone pattern to determine PvP zones by position.
-        if (!isWorldEnabled(world)) {
-            return;
+    public Map<String, Integer> getLiveStateCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("zoneStates", lastZoneByPlayer.size());
+        counts.put("zoneStatuses", statusIndex.size());
+        counts.put("readyPlayers", readyPlayers.size());
+        counts.put("operatorCache", permissionCache == null ? 0 : permissionCache.size());
+        counts.put("worldContexts", worldContexts.size());
+        return counts;
+    }
+
+    public ZonePvpMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * State of the PvP audit log, for the stats command.
+     *
+     * @return a one-line description, or null if auditing is off
+     */
+    public String describeAuditLog() {
+        PvpAuditLog log = auditLog;
+        if (log == null) {
+            return null;
         }
-        WorldConfig worldConfig = world.getWorldConfig();
+        return log.getDroppedCount() + " events dropped" + (log.hasFailed() ? ", writer stopped after an error" : "");
+    }
 
-        long worldSeed = worldConfig.getSeed();
-        int seed = (int) worldSeed;
-        IWorldGenProvider worldGenProvider = worldConfig.getWorldGenProvider();
-        IWorldGen worldGen;
+    /**
+     * Zone tracking cost per tick of each tracked world.
+     *
+     * @return histograms keyed by world name
+     */
+    public Map<String, LatencyHistogram> getTrackingTimesByWorld() {
+        Map<String, LatencyHistogram> times = new LinkedHashMap<>();
+        for (WorldZoneContext context : worldContexts.values()) {
+            if (context.isEnabled()) {
+                times.put(String.valueOf(context.getWorldKey()), context.getTrackingTimes());
+            }
+        }
+        return times;
+    }
 
-        try {
-            worldGen = worldGenProvider.getGenerator();
-        } catch (WorldGenLoadException e) {
+    /**
+     * Handle player disconnect by evicting all state held for the player.
+     *
+     * @param event the player disconnect event
+     */
+    private void onPlayerDisconnect(PlayerDisconnectEvent event) {
+        PlayerRef playerRef = event.getPlayerRef();
+        if (playerRef == null || playerRef.getUuid() == null) {
             return;
         }
+        UUID playerId = playerRef.getUuid();
+        lastZoneByPlayer.remove(playerId);
+        statusIndex.remove(playerId);
+        readyPlayers.remove(playerId);
+        permissionCache.invalidate(playerId);
+    }
+
+    /**
+     * Get the resolved context for a world, creating it the first time the world is seen.
+     *
+     * @param world the world
+     * @return the world's zone context
+     */
+    private WorldZoneContext resolveWorldContext(World world) {
+        WorldZoneContext context = worldContexts.get(world);
+        if (context != null) {
+            return context;
+        }
+        return worldContexts.computeIfAbsent(world, this::createWorldContext);
+    }
+
+    private WorldZoneContext createWorldContext(World world) {
+        ZonePvpControlConfig settings = config;
+        String worldKey = resolveWorldKey(world);
+        boolean enabled = settings == null || settings.isWorldEnabled(worldKey);
+        ZoneLookupCache zoneCache = null;
+        if (settings != null && settings.getZoneCacheCellSize() > 0) {
+            zoneCache = new ZoneLookupCache(settings.getZoneCacheCapacity(), settings.getZoneCacheCellSize());
+        }
+        WorldZoneContext context = new WorldZoneContext(world, worldKey, enabled,
+                isWorldPvpEnabled(world.getWorldConfig()), zoneCache, zoneRegistry);
+        if (enabled && rasterLoader != null) {
+            rasterLoader.load(context);
+        }
+        return context;
+    }
+
+    private Path resolveRasterDirectory() {
+        String directory = config.getZoneRasterDirectory();
+        if (directory == null || directory.isBlank()) {
+            return DataPaths.resolveDataPath(this);
+        }
+        return Paths.get(directory.trim());
+    }
 
-        if (!(worldGen instanceof ChunkGenerator chunkGenerator)) {
+    /**
+     * Handle world removal by dropping its resolved context.
+     *
+     * @param event the remove world event
+     */
+    private void onRemoveWorld(RemoveWorldEvent event) {
+        World world = event.getWorld();
+        if (world != null) {
+            worldContexts.remove(world);
+            // Players still attributed to the removed world have left it.
+            lastZoneByPlayer.values().removeIf(state -> state.lastWorld == world);
+            statusIndex.retainAll(lastZoneByPlayer.keySet());
+        }
+    }
+
+    /**
+     * Run one tick's slice of the world's poll pass. Each pass checks every player once per poll
+     * interval; its players are handled round-robin, spread evenly over the ticks of the interval and
+     * capped by the per-world time budget, with anything left carried over to the next tick.
+     *
+     * @param context the resolved context of the world to track
+     * @param dt      the world tick length in seconds
+     */
+    private void trackWorldZoneSlice(WorldZoneContext context, float dt) {
+        long now = System.nanoTime();
+        World world = context.getWorld();
+        ZoneTrackingSchedule<Player> schedule = context.getSchedule();
+        boolean passPending = schedule.hasPendingPass();
+        // Empty worlds cost a player count check and nothing more.
+        if (!passPending && (!context.isPassDue(now, ZONE_POLL_NANOS) || world.getPlayerCount() == 0)) {
+            return;
+        }
+        // Use the world generator's zone pattern to determine PvP zones by position. Worlds without
+        // one never snapshot their players.
+        ZoneEvaluator evaluator = context.resolveEvaluator();
+        if (evaluator == null) {
             return;
         }
+        if (!passPending) {
+            schedule.startPass(world.getPlayers(), now);
+        }
+
+        ZonePvpControlConfig settings = config;
+        GroupRuleTable groupRules = groupRules(settings);
+        double minDistance = recheckMinDistance(settings);
+        int refreshPolls = settings == null ? 1 : settings.getZoneForcedRefreshPolls();
+        long budgetNanos = settings == null ? Long.MAX_VALUE : TimeUnit.MICROSECONDS.toNanos(
+                Math.max(1, settings.getZoneTrackingBudgetMicros()));
+        int quota = schedule.passSliceQuota(now, ZONE_POLL_NANOS, (long) (dt * 1e9));
+        for (int handled = 0; handled < quota; handled++) {
+            if (ZoneTrackingSchedule.isOutOfTime(handled, now, budgetNanos)) {
+                // Out of time; the rest of the slice carries over to the next tick.
+                break;
+            }
+            Player player = schedule.nextPassPlayer();
+            trackPlayerZoneOnPoll(context, evaluator, null, settings, groupRules, player, minDistance, refreshPolls,
+                    now);
+        }
+        context.drainNotifications(this::sendQueuedNotification);
+        context.addTrackingNanos(System.nanoTime() - now);
+        context.flushTrackingMetrics(metrics);
+    }
 
-        ZonePatternGenerator zoneGenerator = chunkGenerator.getZonePatternGenerator(seed);
-        if (zoneGenerator == null) {
+    /**
+     * Run the world's poll pass off the world thread. Once per poll interval the world thread
+     * snapshots the positions and zone state of the players due for evaluation and hands them to the
+     * zone evaluation pool; the results are applied back on the world thread by
+     * {@link #finishEvaluationBatch(WorldZoneContext)} on a later tick. The snapshot is capped by the
+     * per-world time budget, with the rest of the players snapshotted on the following ticks; the
+     * whole pass is checked against the clock and rules it started with.
+     *
+     * @param context the resolved context of the world to track
+     */
+    private void trackWorldZonesOffThread(WorldZoneContext context) {
+        long now = System.nanoTime();
+        World world = context.getWorld();
+        ZoneTrackingSchedule<Player> schedule = context.getSchedule();
+        boolean passPending = schedule.hasPendingPass();
+        if (!passPending && (!context.isPassDue(now, ZONE_POLL_NANOS) || world.getPlayerCount() == 0)) {
+            return;
+        }
+        ZoneEvaluator evaluator = context.resolveEvaluator();
+        if (evaluator == null) {
             return;
         }
 
-        for (Player player : world.getPlayers()) {
-            TransformComponent transform = player.getTransformComponent();
-            if (transform == null) {
-                continue;
+        ZonePvpControlConfig settings = config;
+        GroupRuleTable groupRules = groupRules(settings);
+        ZoneEvaluationBatch batch = context.getEvaluationBatch();
+        if (passPending && !batch.isSnapshotOf(settings, groupRules)) {
+            // The config changed part way through the snapshot; start the pass over under the new one.
+            dropEvaluationBatch(context, batch);
+            passPending = false;
+        }
+        if (!passPending) {
+            schedule.startPass(world.getPlayers(), now);
+            batch.reset(world, groupRules, settings, now);
+        }
+        long passNow = batch.getNowNanos();
+        double minDistance = recheckMinDistance(settings);
+        int refreshPolls = settings.getZoneForcedRefreshPolls();
+        long budgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, settings.getZoneTrackingBudgetMicros()));
+        for (int handled = 0; schedule.hasPendingPass(); handled++) {
+            if (ZoneTrackingSchedule.isOutOfTime(handled, now, budgetNanos)) {
+                // Out of time; the rest of the snapshot carries over to the next tick.
+                break;
             }
+            trackPlayerZoneOnPoll(context, null, batch, settings, groupRules, schedule.nextPassPlayer(), minDistance,
+                    refreshPolls, passNow);
+        }
+        if (!schedule.hasPendingPass()) {
+            context.submitBatch(evaluator, zoneEvaluationPool);
+        }
+        context.addTrackingNanos(System.nanoTime() - now);
+        context.flushTrackingMetrics(metrics);
+    }
 
-            UUID playerId = resolvePlayerId(player);
-            if (playerId == null) {
-                continue;
+    /**
+     * Apply a poll pass evaluated off the world thread once its worker has finished: copy the results
+     * into the players' zone states and notify players whose PvP status changed. The results are
+     * dropped if the world was disabled in the meantime or the evaluation failed.
+     *
+     * @param context the resolved context of the world
+     */
+    private void finishEvaluationBatch(WorldZoneContext context) {
+        CompletableFuture<Void> evaluation = context.takeFinishedBatch();
+        if (evaluation == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        ZoneEvaluationBatch batch = context.getEvaluationBatch();
+        try {
+            evaluation.join();
+        } catch (CompletionException | CancellationException e) {
+            LOGGER.atWarning().withCause(e).log("Zone evaluation failed for world " + context.getWorldKey() + ".");
+            dropEvaluationBatch(context, batch);
+            return;
+        }
+        if (!context.isEnabled()) {
+            dropEvaluationBatch(context, batch);
+            return;
+        }
+        ZoneTraceRecorder.WorldTrace trace = context.getTrace();
+        batch.apply((player, playerId, state, pvpChanged) -> {
+            if (trace != null) {
+                trace.result(state, pvpChanged);
             }
+            if (lastZoneByPlayer.get(playerId) != state) {
+                // Left the world or disconnected while the pass was evaluated.
+                return;
+            }
+            statusIndex.publish(playerId, state, context.getWorldKey());
+            if (pvpChanged && readyPlayers.contains(playerId)) {
+                context.queueNotification(player, playerId, state);
+            }
+        });
+        context.drainNotifications(this::sendQueuedNotification);
+        context.addTrackingNanos(System.nanoTime() - start);
+        context.flushTrackingMetrics(metrics);
+    }
+
+    private static void dropEvaluationBatch(WorldZoneContext context, ZoneEvaluationBatch batch) {
+        batch.clear();
+        if (context.getTrace() != null) {
+            context.getTrace().batchDropped();
+        }
+    }
 
-            double x = transform.getPosition().getX();
-            double z = transform.getPosition().getZ();
-            ZoneState state = lastZoneByPlayer.computeIfAbsent(playerId, id -> new ZoneState());
-            zoneGenerator.generate(seed, x, z, state.zoneResult);
+    /**
+     * Handle one player of a poll pass: skip them if their zone is not due for evaluation, otherwise
+     * evaluate it now with the evaluator or, when a batch is given, add them to it for evaluation off
+     * the world thread.
+     */
+    private void trackPlayerZoneOnPoll(WorldZoneContext context, ZoneEvaluator evaluator, ZoneEvaluationBatch batch,
+                                       ZonePvpControlConfig settings, GroupRuleTable groupRules, Player player,
+                                       double minDistance, int refreshPolls, long now) {
+        TransformComponent transform = player.getTransformComponent();
+        if (transform == null) {
+            return;
+        }
 
-            Zone zone = state.zoneResult.getZone();
-            if (zone == null) {
-                continue;
-            }
+        UUID playerId = resolvePlayerId(player);
+        if (playerId == null) {
+            return;
+        }
 
-            String zoneName = zone.name();
-            boolean pvpEnabled = isPvpZone(zoneName);
-            boolean playerReady = readyPlayers.contains(playerId);
-            boolean wasPvpEnabled = state.pvpEnabled;
-            boolean statusChanged = wasPvpEnabled != pvpEnabled;
-            if (state.zoneName == null || !state.zoneName.equals(zoneName)) {
-                state.zoneName = zoneName;
-            }
+        double x = transform.getPosition().getX();
+        double z = transform.getPosition().getZ();
+        // Also filters out players who left the world since the pass started.
+        ZoneState state = bindZoneState(playerId, player);
+        if (state == null) {
+            return;
+        }
+        state.lastSeenNanos = now;
+        boolean due = ZoneEvaluator.isEvaluationDue(state, context.getWorld(), x, z, groupRules, minDistance,
+                refreshPolls, now);
+        ZoneTraceRecorder.WorldTrace trace = context.getTrace();
+        if (trace != null) {
+            trace.poll(settings, groupRules, state, playerId, x, z, !due ? 0 : batch != null
+                    ? ZoneTraceRecorder.POLL_DUE | ZoneTraceRecorder.POLL_BATCHED
+                    : ZoneTraceRecorder.POLL_DUE | ZoneTraceRecorder.POLL_EVALUATED, now);
+        }
+        if (!due) {
+            state.pollsSinceEvaluation++;
+            context.recordSkipped();
+            return;
+        }
+        context.recordEvaluated();
+        if (batch != null) {
+            batch.add(player, playerId, state, x, z);
+            return;
+        }
+        evaluatePlayerZone(context, evaluator, settings, groupRules, player, playerId, state, x, z, now);
+    }
 
-            if (statusChanged) {
-                state.pvpEnabled = pvpEnabled;
-                if (playerReady) {
-                    // Push a PvP status notification when the zone changes.
-                    sendPvpNotification(player, pvpEnabled);
-                }
-                if (playerReady && wasPvpEnabled && !pvpEnabled && !isWorldPvpEnabled(worldConfig) && isOperator(playerId)) {
-                    player.sendMessage(Message.raw("Warning: world PvP is disabled in config; PvP will remain off."));
-                }
+    /**
+     * Track a single player's zone from the world tick, within the world's per-tick evaluation budget.
+     * Players deferred by an exhausted budget take precedence on the next tick so none are starved.
+     *
+     * @param context   the resolved context of the player's world
+     * @param player    the player
+     * @param transform the player's transform
+     * @param state     the player's zone state component
+     */
+    private void trackPlayerZoneOnTick(WorldZoneContext context, Player player, TransformComponent transform,
+                                       ZoneState state) {
+        long start = System.nanoTime();
+        try {
+            trackPlayerZone(context, player, transform, state);
+        } finally {
+            context.addTrackingNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void trackPlayerZone(WorldZoneContext context, Player player, TransformComponent transform,
+                                 ZoneState state) {
+        ZoneEvaluator evaluator = context.resolveEvaluator();
+        // A poll pass still evaluating off the world thread after a switch to TICK mode owns the evaluator.
+        if (evaluator == null || context.isBatchRunning()) {
+            return;
+        }
+
+        UUID playerId = resolvePlayerId(player);
+        if (playerId == null) {
+            return;
+        }
+
+        double x = transform.getPosition().getX();
+        double z = transform.getPosition().getZ();
+        if (lastZoneByPlayer.get(playerId) != state) {
+            lastZoneByPlayer.put(playerId, state);
+        }
+        ZoneTrackingSchedule<Player> schedule = context.getSchedule();
+        long now = schedule.getTickStartNanos();
+        state.lastSeenNanos = now;
+        ZonePvpControlConfig settings = config;
+        GroupRuleTable groupRules = groupRules(settings);
+        int refreshTicks = settings == null ? 1 : settings.getZoneTickForcedRefreshTicks();
+        boolean due = ZoneEvaluator.isEvaluationDue(state, context.getWorld(), x, z, groupRules,
+                recheckMinDistance(settings), refreshTicks, now);
+        boolean evaluate = false;
+        if (due) {
+            int admission = schedule.admitDue(state.deferred);
+            evaluate = admission == ZoneTrackingSchedule.ADMITTED;
+            if (admission == ZoneTrackingSchedule.DEFERRED) {
+                state.deferred = true;
             }
         }
+        ZoneTraceRecorder.WorldTrace trace = context.getTrace();
+        if (trace != null) {
+            trace.poll(settings, groupRules, state, playerId, x, z, ZoneTraceRecorder.POLL_TICK_MODE
+                    | (due ? ZoneTraceRecorder.POLL_DUE : 0) | (evaluate ? ZoneTraceRecorder.POLL_EVALUATED : 0), now);
+        }
+        if (!due) {
+            state.pollsSinceEvaluation++;
+            context.recordSkipped();
+            return;
+        }
+        if (!evaluate) {
+            return;
+        }
+        state.deferred = false;
+        context.recordEvaluated();
+        evaluatePlayerZone(context, evaluator, settings, groupRules, player, playerId, state, x, z, now);
+    }
+
+    /**
+     * Evaluate a player's zone at a position, apply any PvP status change past the border margin and
+     * dwell time, and schedule the player's next check from their distance to the nearest PvP border.
+     */
+    private void evaluatePlayerZone(WorldZoneContext context, ZoneEvaluator evaluator, ZonePvpControlConfig settings,
+                                    GroupRuleTable groupRules, Player player, UUID playerId, ZoneState state,
+                                    double x, double z, long now) {
+        boolean statusChanged;
+        if (settings == null) {
+            statusChanged = evaluator.evaluate(state, context.getWorld(), x, z, groupRules);
+        } else {
+            statusChanged = evaluator.evaluate(state, context.getWorld(), x, z, groupRules,
+                    settings.getZoneBorderMargin(),
+                    TimeUnit.MILLISECONDS.toNanos(settings.getZoneBorderDwellMillis()), now);
+            evaluator.scheduleNextCheck(state, groupRules, settings.getZoneBorderProbeDistance(),
+                    settings.getPlayerMaxSpeed(), now);
+        }
+        if (context.getTrace() != null) {
+            context.getTrace().result(state, statusChanged);
+        }
+        statusIndex.publish(playerId, state, context.getWorldKey());
+        if (statusChanged && readyPlayers.contains(playerId)) {
+            // Notify once at the end of the tick, with whatever state the player ends it in.
+            context.queueNotification(player, playerId, state);
+        }
+    }
+
+    /**
+     * Send a queued PvP status notification if the player's final state for the tick differs from
+     * the one they were last shown.
+     */
+    private void sendQueuedNotification(WorldZoneContext context, Player player, UUID playerId, ZoneState state) {
+        boolean pvpEnabled = state.pvpEnabled;
+        if (pvpEnabled == state.notifiedPvp) {
+            return;
+        }
+        sendPvpNotification(player, pvpEnabled);
+        state.notifiedPvp = pvpEnabled;
+        if (!pvpEnabled && state.combatTag.isRunning()) {
+            player.sendMessage(Message.raw("You are in combat; PvP stays on until your combat tag runs out."));
+        }
+        if (!pvpEnabled && !context.isWorldPvpEnabled() && isOperator(playerId)) {
+            player.sendMessage(Message.raw("Warning: world PvP is disabled in config; PvP will remain off."));
+        }
+    }
+
+    /**
+     * Start, continue or stop recording a world's zone trace to match the current recorder.
+     */
+    private void syncZoneTrace(WorldZoneContext context, ZonePvpControlConfig settings, long now) {
+        ZoneTraceRecorder recorder = traceRecorder;
+        if (recorder != null || context.getTrace() != null) {
+            context.syncTrace(recorder, settings, groupRules(settings), now);
+        }
+    }
+
+    private static double recheckMinDistance(ZonePvpControlConfig settings) {
+        return settings == null ? 0.0 : settings.getZoneRecheckMinDistance();
+    }
+
+    /**
+     * Get the zone state component of a player's entity and index it by UUID.
+     *
+     * @param playerId the player's UUID
+     * @param player   the player
+     * @return the player's zone state, or null if the entity does not carry one yet
+     */
+    private ZoneState bindZoneState(UUID playerId, Player player) {
+        Ref<EntityStore> ref = player.getReference();
+        if (ref == null || !ref.isValid()) {
+            return null;
+        }
+        ZoneState state = ref.getStore().getComponent(ref, ZoneState.getComponentType());
+        if (state != null && lastZoneByPlayer.get(playerId) != state) {
+            lastZoneByPlayer.put(playerId, state);
+        }
+        return state;
+    }
+
+    private boolean isTickTracking() {
+        ZonePvpControlConfig settings = config;
+        return settings != null && settings.getZoneTrackingMode() == ZonePvpControlConfig.ZoneTrackingMode.TICK;
+    }
+
+    /**
+     * Get the PvP and drop rules resolved by zone group id, rebuilding them when new groups have
+     * been registered or the config changed.
+     *
+     * @param settings the config snapshot in use, or null for the built-in defaults
+     */
+    private GroupRuleTable groupRules(ZonePvpControlConfig settings) {
+        ZoneRules rules = settings == null ? null : settings.getRules();
+        GroupRuleTable table = groupRuleTable;
+        if (table == null || !table.isCurrent(rules, zoneRegistry.groupCount())) {
+            table = GroupRuleTable.build(rules, zoneRegistry);
+            groupRuleTable = table;
+        }
+        return table;
     }
 
     /**
@@ -219,11 +855,22 @@ public class ZonePVPControl extends JavaPlugin {
             return;
         }
         readyPlayers.add(playerId);
+        // Warm the operator cache so hot paths never resolve permissions for this player.
+        permissionCache.refresh(playerId);
         ZoneState state = lastZoneByPlayer.get(playerId);
         if (state != null) {
-            state.pvpEnabled = isPvpZone(state.zoneName);
+            ZonePvpControlConfig settings = config;
+            PvpDecisions.resolvePvpFlag(state, groupRules(settings));
             // Sync initial PvP status notification once the client is ready.
             sendPvpNotification(player, state.pvpEnabled);
+            state.notifiedPvp = state.pvpEnabled;
+            WorldZoneContext context = state.lastWorld == null ? null : worldContexts.get(state.lastWorld);
+            if (context != null) {
+                statusIndex.publish(playerId, state, context.getWorldKey());
+                if (context.getTrace() != null) {
+                    context.getTrace().ready(settings, state.groupRules, state);
+                }
+            }
         }
     }
 
@@ -254,87 +901,41 @@ public class ZonePVPControl extends JavaPlugin {
         String label = pvpEnabled ? "PVP ENABLED" : "PVE ONLY";
         NotificationStyle style = pvpEnabled ? NotificationStyle.Danger : NotificationStyle.Success;
         NotificationUtil.sendNotification(playerRef.getPacketHandler(), Message.raw(label), style);
-    }
-
-    private boolean isWorldEnabled(World world) {
-        if (config == null || world == null) {
-            return true;
-        }
-        String key = resolveWorldKey(world);
-        return config.isWorldEnabled(key);
+        metrics.increment(ZonePvpMetrics.Counter.NOTIFICATIONS_SENT);
     }
 
     private String resolveWorldKey(World world) {
         if (world == null) {
             return null;
         }
-        Object name = tryInvoke(world, "getName");
+        Object name = Capabilities.invoke(world, "getName");
         if (name instanceof String value && !value.isBlank()) {
             return value;
         }
-        Object folder = tryInvoke(world, "getFolderName");
+        Object folder = Capabilities.invoke(world, "getFolderName");
         if (folder instanceof String value && !value.isBlank()) {
             return value;
         }
-        Object id = tryInvoke(world, "getId");
+        Object id = Capabilities.invoke(world, "getId");
         if (id != null) {
             return id.toString();
         }
         return null;
     }
 
-    private Object tryInvoke(Object target, String methodName, Object... args) {
-        if (target == null) {
-            return null;
-        }
-        for (java.lang.reflect.Method method : target.getClass().getMethods()) {
-            if (!method.getName().equals(methodName) || method.getParameterCount() != args.length) {
-                continue;
-            }
-            try {
-                return method.invoke(target, args);
-            } catch (Exception ignored) {
-                return null;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Check if PvP is enabled for a player.
-     *
-     * @param playerId the player's UUID
-     * @return whether PvP is enabled
-     */
-    private boolean isPvpEnabled(UUID playerId) {
-        ZoneState state = lastZoneByPlayer.get(playerId);
-        return state != null && state.pvpEnabled;
-    }
-
-    private String describeZone(UUID playerId) {
-        if (playerId == null) {
-            return "unknown";
-        }
-        ZoneState state = lastZoneByPlayer.get(playerId);
-        if (state == null || state.zoneName == null) {
-            return "unknown";
-        }
-        return state.zoneName + " (pvp=" + state.pvpEnabled + ")";
-    }
-
     private boolean isWorldPvpEnabled(WorldConfig worldConfig) {
         if (worldConfig == null) {
             return true;
         }
-        Object value = tryInvoke(worldConfig, "isPvpEnabled");
+        Object value = Capabilities.invoke(worldConfig, "isPvpEnabled");
         if (value instanceof Boolean boolValue) {
             return boolValue;
         }
-        value = tryInvoke(worldConfig, "getIsPvpEnabled");
+        value = Capabilities.invoke(worldConfig, "getIsPvpEnabled");
         if (value instanceof Boolean boolValue) {
             return boolValue;
         }
-        value = tryInvoke(worldConfig, "getPvpEnabled");
+        value = Capabilities.invoke(worldConfig, "getPvpEnabled");
         if (value instanceof Boolean boolValue) {
             return boolValue;
         }
@@ -342,69 +943,98 @@ public class ZonePVPControl extends JavaPlugin {
     }
 
     private boolean isOperator(UUID playerId) {
-        if (playerId == null) {
-            return false;
+        return permissionCache != null && permissionCache.isOperator(playerId);
+    }
+
+    /**
+     * Decide a player-vs-player hit, ending the attacker's spawn protection and combat tagging both
+     * players if it is allowed, and republish the statuses this changes.
+     *
+     * @return whether the hit is allowed
+     */
+    private boolean applyHit(Store<EntityStore> store, ZoneState attacker, ZoneState target, long now) {
+        ZonePvpControlConfig settings = config;
+        WorldZoneContext context = worldContext(store);
+        if (settings == null || context == null) {
+            return PvpDecisions.isPvpAllowed(attacker, target);
         }
-        PermissionsModule perms = PermissionsModule.get();
-        if (perms == null) {
-            return false;
+        boolean attackerProtected = attacker != null && attacker.spawnProtection.isRunning();
+        boolean allowed = PvpDecisions.applyHit(attacker, target, context.getPvpTimers(), settings, now);
+        if (allowed || attackerProtected) {
+            statusIndex.republish(attacker);
         }
-        try {
-            for (String group : perms.getGroupsForUser(playerId)) {
-                if (group == null || group.trim().isEmpty()) {
-                    continue;
-                }
-                String normalized = group.trim().toLowerCase();
-                if ("op".equals(normalized) || "admin".equals(normalized) || "operator".equals(normalized)) {
-                    return true;
-                }
-            }
-        } catch (Exception ignored) {
-            return false;
+        if (allowed) {
+            statusIndex.republish(target);
         }
-        return false;
+        return allowed;
     }
 
-    private String resolveZoneGroupForPlayer(UUID playerId) {
-        ZoneState state = lastZoneByPlayer.get(playerId);
-        if (state == null || state.zoneName == null) {
-            return null;
+    /**
+     * Protect a player who just spawned from PvP for the configured spawn protection time.
+     */
+    private void startSpawnProtection(Store<EntityStore> store, ZoneState state) {
+        ZonePvpControlConfig settings = config;
+        if (settings == null || settings.getPvpSpawnProtectionSeconds() <= 0) {
+            return;
         }
-        return resolveZoneGroup(state.zoneName);
-    }
-
-    private String resolveZoneGroup(String zoneName) {
-        if (zoneName == null) {
-            return null;
+        WorldZoneContext context = worldContext(store);
+        long now = System.nanoTime();
+        if (context != null && PvpDecisions.startSpawnProtection(state, context.getPvpTimers(), settings, now)) {
+            statusIndex.republish(state);
+            if (context.getTrace() != null) {
+                context.getTrace().protect(settings, state, now);
+            }
         }
-        int underscoreIndex = zoneName.indexOf('_');
-        return underscoreIndex == -1 ? zoneName : zoneName.substring(0, underscoreIndex);
     }
 
     /**
-     * Check if a zone allows PvP.
-     *
-     * @param zoneName the zone name
-     * @return whether PvP is allowed
+     * Stop a player's PvP timers as they leave a world; they do not carry over to the next.
      */
-    private boolean isPvpZone(String zoneName) {
-        String zoneGroup = resolveZoneGroup(zoneName);
-        if (zoneGroup == null) {
-            return false;
+    private void cancelPvpTimers(Store<EntityStore> store, ZoneState state) {
+        if (!state.combatTag.isRunning() && !state.spawnProtection.isRunning()) {
+            return;
         }
-        if (config != null) {
-            return config.isPvpZoneEnabled(zoneGroup);
+        TimingWheel timers = pvpTimers(store);
+        if (timers != null) {
+            timers.cancel(state.combatTag);
+            timers.cancel(state.spawnProtection);
         }
-        // Match by group prefix to allow multiple zone variants.
-        return PVP_ZONE_GROUPS.contains(zoneGroup);
+    }
+
+    /**
+     * PvP timers of a store's world, without creating a context for it: timers only run in worlds
+     * that already have one, and a world being unloaded must not get a new context.
+     */
+    private TimingWheel pvpTimers(Store<EntityStore> store) {
+        WorldZoneContext context = existingWorldContext(store);
+        return context == null ? null : context.getPvpTimers();
+    }
+
+    private WorldZoneContext worldContext(Store<EntityStore> store) {
+        World world = store.getExternalData().getWorld();
+        return world == null ? null : resolveWorldContext(world);
+    }
+
+    private WorldZoneContext existingWorldContext(Store<EntityStore> store) {
+        World world = store.getExternalData().getWorld();
+        return world == null ? null : worldContexts.get(world);
+    }
+
+    /**
+     * The zone trace event stream of a store's world, when one is being recorded.
+     */
+    private ZoneTraceRecorder.WorldTrace zoneTrace(Store<EntityStore> store) {
+        WorldZoneContext context = existingWorldContext(store);
+        return context == null ? null : context.getTrace();
     }
 
     private void applyPvpDropRules(Ref<EntityStore> victimRef, DeathComponent deathComponent, Store<EntityStore> store) {
-        if (config == null || victimRef == null || deathComponent == null || store == null) {
+        ZonePvpControlConfig settings = config;
+        if (settings == null || victimRef == null || deathComponent == null || store == null) {
             return;
         }
-        Player victim = store.getComponent(victimRef, Player.getComponentType());
-        if (victim == null) {
+        ZoneState victimState = store.getComponent(victimRef, ZoneState.getComponentType());
+        if (victimState == null) {
             return;
         }
 
@@ -417,19 +1047,14 @@ public class ZonePVPControl extends JavaPlugin {
         if (attackerRef == null) {
             return;
         }
-        Player attacker = store.getComponent(attackerRef, Player.getComponentType());
-        if (attacker == null) {
-            return;
-        }
-
-        UUID victimId = victim.getPlayerRef().getUuid();
-        UUID attackerId = attacker.getPlayerRef().getUuid();
-        if (!isPvpEnabled(victimId) || !isPvpEnabled(attackerId)) {
-            return;
+        ZoneState attackerState = store.getComponent(attackerRef, ZoneState.getComponentType());
+        GroupRuleTable groupRules = groupRules(settings);
+        ZonePvpControlConfig.PvpDropMode dropMode = PvpDecisions.resolveDropMode(victimState, attackerState,
+                groupRules);
+        ZoneTraceRecorder.WorldTrace trace = attackerState == null ? null : zoneTrace(store);
+        if (trace != null) {
+            trace.kill(settings, groupRules, victimState, attackerState, dropMode);
         }
-
-        String zoneGroup = resolveZoneGroupForPlayer(victimId);
-        ZonePvpControlConfig.PvpDropMode dropMode = config.getPvpDropMode(zoneGroup);
         if (dropMode == ZonePvpControlConfig.PvpDropMode.DEFAULT) {
             return;
         }
@@ -437,30 +1062,67 @@ public class ZonePVPControl extends JavaPlugin {
         if (dropMode == ZonePvpControlConfig.PvpDropMode.FULL) {
             deathComponent.setItemsLossMode(DeathConfig.ItemsLossMode.ALL);
             deathComponent.setItemsAmountLossPercentage(100.0);
+            metrics.increment(ZonePvpMetrics.Counter.DROP_RULES_APPLIED);
             return;
         }
 
         if (dropMode == ZonePvpControlConfig.PvpDropMode.PARTIAL) {
-            double amountLoss = clampPercent(config.getPvpPartialDropAmountPercent());
-            double durabilityLoss = clampPercent(config.getPvpPartialDropDurabilityPercent());
+            ZoneRules rules = settings.getRules();
             deathComponent.setItemsLossMode(DeathConfig.ItemsLossMode.CONFIGURED);
-            deathComponent.setItemsAmountLossPercentage(amountLoss);
-            deathComponent.setItemsDurabilityLossPercentage(durabilityLoss);
+            deathComponent.setItemsAmountLossPercentage(rules.getPartialDropAmountPercent());
+            deathComponent.setItemsDurabilityLossPercentage(rules.getPartialDropDurabilityPercent());
+            metrics.increment(ZonePvpMetrics.Counter.DROP_RULES_APPLIED);
         }
     }
 
-    private double clampPercent(double value) {
-        return Math.max(0.0, Math.min(100.0, value));
-    }
-
     /**
-     * Cache of zone state per player.
+     * ECS system that attaches zone state to player entities as they are added to a world, and
+     * drops the UUID index entry when the entity leaves.
      */
-    private static final class ZoneState {
-        // Cache zone query results per-player to avoid reallocations.
-        private final ZoneGeneratorResult zoneResult = new ZoneGeneratorResult();
-        private String zoneName;
-        private boolean pvpEnabled;
+    private static final class ZoneStateAttachSystem extends RefSystem<EntityStore> {
+        private final ZonePVPControl plugin;
+
+        private ZoneStateAttachSystem(ZonePVPControl plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Player.getComponentType();
+        }
+
+        @Override
+        public void onEntityAdded(Ref<EntityStore> ref, AddReason reason, Store<EntityStore> store,
+                                  CommandBuffer<EntityStore> commandBuffer) {
+            if (store.getComponent(ref, ZoneState.getComponentType()) == null) {
+                // New players start with PvP off until their zone is evaluated.
+                ZoneState state = new ZoneState();
+                UUID playerId = plugin.resolvePlayerId(store.getComponent(ref, Player.getComponentType()));
+                // Only joining players are protected: a player changing worlds or reloaded with their
+                // chunk has been ready since they joined. Respawns are protected by the death system.
+                if (playerId != null && !plugin.readyPlayers.contains(playerId)) {
+                    plugin.startSpawnProtection(store, state);
+                }
+                commandBuffer.addComponent(ref, ZoneState.getComponentType(), state);
+            }
+        }
+
+        @Override
+        public void onEntityRemove(Ref<EntityStore> ref, RemoveReason reason, Store<EntityStore> store,
+                                   CommandBuffer<EntityStore> commandBuffer) {
+            ZoneState state = store.getComponent(ref, ZoneState.getComponentType());
+            if (state != null) {
+                plugin.cancelPvpTimers(store, state);
+                ZoneTraceRecorder.WorldTrace trace = plugin.zoneTrace(store);
+                if (trace != null) {
+                    trace.detach(state);
+                }
+            }
+            UUID playerId = plugin.resolvePlayerId(store.getComponent(ref, Player.getComponentType()));
+            if (state != null && playerId != null && plugin.lastZoneByPlayer.remove(playerId, state)) {
+                plugin.statusIndex.remove(playerId, state);
+            }
+        }
     }
 
     /**
@@ -480,7 +1142,7 @@ public class ZonePVPControl extends JavaPlugin {
 
         @Override
         public Query<EntityStore> getQuery() {
-            return Query.any();
+            return ZoneState.getComponentType();
         }
 
         @Override
@@ -498,7 +1160,107 @@ public class ZonePVPControl extends JavaPlugin {
         @Override
         public void onComponentRemoved(Ref<EntityStore> ref, DeathComponent component, Store<EntityStore> store,
                                        CommandBuffer<EntityStore> commandBuffer) {
-            // No-op.
+            // The player respawned.
+            ZoneState state = store.getComponent(ref, ZoneState.getComponentType());
+            if (state != null) {
+                plugin.startSpawnProtection(store, state);
+            }
+        }
+    }
+
+    /**
+     * ECS system that drives zone tracking from each world tick: runs the tick's slice of the poll
+     * pass or hands the pass to the zone evaluation pool, applies passes evaluated there, or in tick
+     * tracking mode resets the world's zone evaluation budget.
+     */
+    private static final class ZoneTrackingSchedulerSystem extends TickingSystem<EntityStore> {
+        private final ZonePVPControl plugin;
+
+        private ZoneTrackingSchedulerSystem(ZonePVPControl plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+            World world = store.getExternalData().getWorld();
+            if (world == null) {
+                return;
+            }
+            WorldZoneContext context = plugin.resolveWorldContext(world);
+            ZonePvpControlConfig settings = plugin.config;
+            long now = System.nanoTime();
+            plugin.syncZoneTrace(context, settings, now);
+            context.getPvpTimers().advance(now);
+            if (context.getTrace() != null) {
+                context.getTrace().advance(now);
+            }
+            // Results evaluated off the world thread are applied, or dropped, whatever the mode or status.
+            plugin.finishEvaluationBatch(context);
+            if (!context.isEnabled()) {
+                return;
+            }
+            if (settings.getZoneTrackingMode() != ZonePvpControlConfig.ZoneTrackingMode.TICK) {
+                if (plugin.zoneEvaluationPool != null) {
+                    plugin.trackWorldZonesOffThread(context);
+                } else {
+                    plugin.trackWorldZoneSlice(context, dt);
+                }
+                return;
+            }
+            // Close out the previous tick's tracking before opening the next.
+            context.drainNotifications(plugin::sendQueuedNotification);
+            context.flushTrackingMetrics(plugin.metrics);
+            context.getSchedule().beginTick(settings.getZoneTickBudget(), System.nanoTime());
+        }
+    }
+
+    /**
+     * ECS system that re-evaluates player zones on the world tick, bounding boundary latency to one tick.
+     */
+    private static final class ZoneTrackingSystem extends EntityTickingSystem<EntityStore> {
+        private final ZonePVPControl plugin;
+
+        private ZoneTrackingSystem(ZonePVPControl plugin) {
+            this.plugin = plugin;
+        }
+
+        /**
+         * Runs after the scheduler, which opens each tick's budget and clock in TICK mode.
+         */
+        @Nonnull
+        @Override
+        public Set<Dependency<EntityStore>> getDependencies() {
+            return Set.of(new SystemDependency<>(Order.AFTER, ZoneTrackingSchedulerSystem.class));
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.and(Player.getComponentType(), TransformComponent.getComponentType(),
+                    ZoneState.getComponentType());
+        }
+
+        @Override
+        public void tick(float dt, int index, ArchetypeChunk<EntityStore> chunk, Store<EntityStore> store,
+                         CommandBuffer<EntityStore> commandBuffer) {
+            if (!plugin.isTickTracking()) {
+                return;
+            }
+            World world = store.getExternalData().getWorld();
+            if (world == null) {
+                return;
+            }
+            WorldZoneContext context = plugin.resolveWorldContext(world);
+            if (!context.isEnabled()) {
+                return;
+            }
+
+            Player player = chunk.getComponent(index, Player.getComponentType());
+            TransformComponent transform = chunk.getComponent(index, TransformComponent.getComponentType());
+            ZoneState state = chunk.getComponent(index, ZoneState.getComponentType());
+            if (player == null || transform == null || state == null) {
+                return;
+            }
+            plugin.trackPlayerZoneOnTick(context, player, transform, state);
         }
     }
 
@@ -507,8 +1269,6 @@ public class ZonePVPControl extends JavaPlugin {
      */
     private static final class ZonePvpDamageSystem extends DamageEventSystem {
         private final ZonePVPControl plugin;
-        private static final long LOG_COOLDOWN_MS = 1500L;
-        private static final ConcurrentHashMap<UUID, Long> LAST_LOG_MS = new ConcurrentHashMap<>();
 
         private ZonePvpDamageSystem(ZonePVPControl plugin) {
             this.plugin = plugin;
@@ -516,48 +1276,41 @@ public class ZonePVPControl extends JavaPlugin {
 
         @Override
         public Query<EntityStore> getQuery() {
-            return Query.any();
+            return ZoneState.getComponentType();
         }
 
         @Override
         public void handle(int index, ArchetypeChunk<EntityStore> chunk, Store<EntityStore> store,
                            CommandBuffer<EntityStore> commandBuffer, Damage damage) {
-            // Cancel player-vs-player damage unless both attacker and target are in PvP zones.
-            Ref<EntityStore> targetRef = chunk.getReferenceTo(index);
-            Player targetPlayer = store.getComponent(targetRef, Player.getComponentType());
-            if (targetPlayer == null) {
-                return;
-            }
-
+            // Cancel player-vs-player damage unless PvP is on for both attacker and target.
             if (!(damage.getSource() instanceof Damage.EntitySource entitySource)) {
                 return;
             }
 
             Ref<EntityStore> attackerRef = entitySource.getRef();
-            Player attackerPlayer = store.getComponent(attackerRef, Player.getComponentType());
-            if (attackerPlayer == null) {
+            ZoneState attackerState = store.getComponent(attackerRef, ZoneState.getComponentType());
+            if (attackerState == null && store.getComponent(attackerRef, Player.getComponentType()) == null) {
+                // Not player-vs-player.
                 return;
             }
 
-            UUID targetId = plugin.resolvePlayerId(targetPlayer);
-            UUID attackerId = plugin.resolvePlayerId(attackerPlayer);
-            if (targetId == null || attackerId == null) {
-                return;
+            ZoneState targetState = chunk.getComponent(index, ZoneState.getComponentType());
+            long now = System.nanoTime();
+            boolean blocked = !plugin.applyHit(store, attackerState, targetState, now);
+            ZonePvpControlConfig settings = plugin.config;
+            ZoneTraceRecorder.WorldTrace trace = attackerState == null || targetState == null
+                    ? null : plugin.zoneTrace(store);
+            if (trace != null) {
+                trace.hit(settings, attackerState, targetState, !blocked, now);
             }
-            boolean targetPvp = plugin.isPvpEnabled(targetId);
-            boolean attackerPvp = plugin.isPvpEnabled(attackerId);
-            boolean blocked = !targetPvp || !attackerPvp;
-            long now = System.currentTimeMillis();
-            Long last = LAST_LOG_MS.get(attackerId);
-            if (last == null || now - last >= LOG_COOLDOWN_MS) {
-                LAST_LOG_MS.put(attackerId, now);
-                System.err.println("[ZonePVPControl] PvP " + (blocked ? "BLOCK" : "ALLOW")
-                        + " attacker=" + attackerId
-                        + " target=" + targetId
-                        + " attackerZone=" + plugin.describeZone(attackerId)
-                        + " targetZone=" + plugin.describeZone(targetId)
-                        + " attackerOp=" + plugin.isOperator(attackerId)
-                        + " targetOp=" + plugin.isOperator(targetId));
+            plugin.metrics.increment(blocked ? ZonePvpMetrics.Counter.PVP_BLOCKED : ZonePvpMetrics.Counter.PVP_ALLOWED);
+            PvpAuditLog auditLog = plugin.auditLog;
+            if (PvpDecisions.isAudited(settings.getPvpAuditLevel(), auditLog, blocked)) {
+                UUID targetId = plugin.resolvePlayerId(chunk.getComponent(index, Player.getComponentType()));
+                UUID attackerId = plugin.resolvePlayerId(store.getComponent(attackerRef, Player.getComponentType()));
+                if (targetId != null && attackerId != null) {
+                    PvpDecisions.audit(auditLog, attackerId, targetId, attackerState, targetState, blocked);
+                }
             }
             if (blocked) {
                 damage.setCancelled(true);
@@ -2,6 +2,7 @@ package games.austale.zonepvpcontrol;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
@@ -9,12 +10,16 @@ import games.austale.zonepvpcontrol.util.DataPaths;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
 public final class ZonePvpControlConfig {
 
@@ -45,6 +50,10 @@ public final class ZonePvpControlConfig {
             "Zone4", "FULL"
     ));
 
+    // Custom regions overriding the zone group's PvP and drop settings inside them.
+    @SerializedName(value = "pvp_regions", alternate = {"pvpRegions"})
+    private List<PvpRegionConfig> pvpRegions = new ArrayList<>();
+
     // Percentage of items lost when PARTIAL drop mode is used.
     @SerializedName(value = "pvp_partial_drop_amount_percent", alternate = {"pvpPartialDropAmountPercent"})
     private double pvpPartialDropAmountPercent = 50.0;
@@ -53,49 +62,152 @@ public final class ZonePvpControlConfig {
     @SerializedName(value = "pvp_partial_drop_durability_percent", alternate = {"pvpPartialDropDurabilityPercent"})
     private double pvpPartialDropDurabilityPercent = 0.0;
 
+    // PvP stays on for a player this many seconds after they deal or take PvP damage. 0 (default) disables it.
+    @SerializedName(value = "pvp_combat_tag_seconds", alternate = {"pvpCombatTagSeconds"})
+    private int pvpCombatTagSeconds = 0;
+
+    // Players can neither deal nor take PvP damage for this many seconds after spawning. 0 (default) disables it.
+    @SerializedName(value = "pvp_spawn_protection_seconds", alternate = {"pvpSpawnProtectionSeconds"})
+    private int pvpSpawnProtectionSeconds = 0;
+
+    // Edge length in blocks of the cells used to cache zone lookups. 0 disables the cache. Every position in a
+    // cell takes the zone at its center, so zone borders move by up to half a cell diagonal.
+    @SerializedName(value = "zone_cache_cell_size", alternate = {"zoneCacheCellSize"})
+    private int zoneCacheCellSize = 0;
+
+    // Maximum number of cached cells per world.
+    @SerializedName(value = "zone_cache_capacity", alternate = {"zoneCacheCapacity"})
+    private int zoneCacheCapacity = 4096;
+
+    // Half the edge length in blocks of the square around the origin baked into a zone raster. 0 disables it.
+    @SerializedName(value = "zone_raster_radius", alternate = {"zoneRasterRadius"})
+    private int zoneRasterRadius = 0;
+
+    // Edge length in blocks of a zone raster cell.
+    @SerializedName(value = "zone_raster_cell_size", alternate = {"zoneRasterCellSize"})
+    private int zoneRasterCellSize = 4;
+
+    // Directory holding zone raster files; empty for the plugin config directory.
+    @SerializedName(value = "zone_raster_directory", alternate = {"zoneRasterDirectory"})
+    private String zoneRasterDirectory = "";
+
+    // Minimum horizontal distance in blocks a player must move before their zone is re-evaluated.
+    @SerializedName(value = "zone_recheck_min_distance", alternate = {"zoneRecheckMinDistance"})
+    private double zoneRecheckMinDistance = 1.0;
+
+    // Re-evaluate a stationary player's zone at least once every this many polls.
+    @SerializedName(value = "zone_forced_refresh_polls", alternate = {"zoneForcedRefreshPolls"})
+    private int zoneForcedRefreshPolls = 10;
+
+    // How far around a player to probe for a PvP border. 0 disables adaptive polling.
+    @SerializedName(value = "zone_border_probe_distance", alternate = {"zoneBorderProbeDistance"})
+    private double zoneBorderProbeDistance = 512.0;
+
+    // Fastest a player is expected to move, in blocks per second.
+    @SerializedName(value = "player_max_speed", alternate = {"playerMaxSpeed"})
+    private double playerMaxSpeed = 15.0;
+
+    // How far past a PvP border a player must be before their PvP status switches, in blocks. 0 (default) switches
+    // on the border.
+    @SerializedName(value = "zone_border_margin", alternate = {"zoneBorderMargin"})
+    private double zoneBorderMargin = 0.0;
+
+    // How long a player must stay past a PvP border before their PvP status switches, in milliseconds. 0 (default)
+    // switches at once.
+    @SerializedName(value = "zone_border_dwell_millis", alternate = {"zoneBorderDwellMillis"})
+    private int zoneBorderDwellMillis = 0;
+
+    // Time each world may spend on zone tracking per tick in POLL mode, in microseconds.
+    @SerializedName(value = "zone_tracking_budget_micros", alternate = {"zoneTrackingBudgetMicros"})
+    private int zoneTrackingBudgetMicros = 500;
+
+    // Worker threads evaluating zones off the world threads in POLL mode. 0 evaluates on the world threads.
+    @SerializedName(value = "zone_evaluation_threads", alternate = {"zoneEvaluationThreads"})
+    private int zoneEvaluationThreads = 0;
+
+    // POLL re-evaluates zones once per second; TICK re-evaluates them on every world tick.
+    @SerializedName(value = "zone_tracking_mode", alternate = {"zoneTrackingMode"})
+    private String zoneTrackingMode = "POLL";
+
+    // Maximum zone evaluations per world per tick in TICK mode. 0 means unlimited.
+    @SerializedName(value = "zone_tick_budget", alternate = {"zoneTickBudget"})
+    private int zoneTickBudget = 64;
+
+    // Re-evaluate a stationary player's zone at least once every this many ticks in TICK mode.
+    @SerializedName(value = "zone_tick_forced_refresh_ticks", alternate = {"zoneTickForcedRefreshTicks"})
+    private int zoneTickForcedRefreshTicks = 60;
+
+    // Permission groups whose members are treated as operators.
+    @SerializedName(value = "operator_groups", alternate = {"operatorGroups"})
+    private List<String> operatorGroups = new ArrayList<>(List.of("op", "admin", "operator"));
+
+    // How long a player's resolved operator status is cached, and so how long group changes take to apply.
+    @SerializedName(value = "operator_cache_ttl_seconds", alternate = {"operatorCacheTtlSeconds"})
+    private int operatorCacheTtlSeconds = 10;
+
+    // Zone state of a player not seen by zone tracking for this long is evicted.
+    @SerializedName(value = "player_state_idle_seconds", alternate = {"playerStateIdleSeconds"})
+    private int playerStateIdleSeconds = 120;
+
+    // PvP damage decisions to audit: OFF, BLOCKED or ALL.
+    @SerializedName(value = "pvp_audit_level", alternate = {"pvpAuditLevel"})
+    private String pvpAuditLevel = "OFF";
+
+    // Number of audit events buffered in memory before new events are dropped.
+    @SerializedName(value = "pvp_audit_buffer_size", alternate = {"pvpAuditBufferSize"})
+    private int pvpAuditBufferSize = 8192;
+
+    // Size in megabytes at which the audit log file is rotated.
+    @SerializedName(value = "pvp_audit_max_file_mb", alternate = {"pvpAuditMaxFileMb"})
+    private int pvpAuditMaxFileMb = 10;
+
+    // Number of audit log files kept, including the current one.
+    @SerializedName(value = "pvp_audit_max_files", alternate = {"pvpAuditMaxFiles"})
+    private int pvpAuditMaxFiles = 5;
+
+    // Record zone tracking and PvP decisions into a binary trace file for offline replay.
+    @SerializedName(value = "zone_trace_enabled", alternate = {"zoneTraceEnabled"})
+    private boolean zoneTraceEnabled = false;
+
+    // Size in megabytes at which recording into the current trace file stops.
+    @SerializedName(value = "zone_trace_max_file_mb", alternate = {"zoneTraceMaxFileMb"})
+    private int zoneTraceMaxFileMb = 256;
+
+    // Compiled once after loading; not serialized.
+    private transient volatile ZoneRules rules;
+    private transient volatile ZoneTrackingMode trackingMode;
+    private transient volatile PvpAuditLevel auditLevel;
+
     public boolean isRestrictToWorlds() {
         return restrictToWorlds;
     }
 
     public boolean isWorldEnabled(String worldKey) {
-        if (!restrictToWorlds) {
-            return true;
-        }
-        if (worldKey == null || enabledWorlds == null) {
-            return false;
-        }
-        for (String allowed : enabledWorlds) {
-            if (allowed != null && allowed.equalsIgnoreCase(worldKey)) {
-                return true;
-            }
-        }
-        return false;
+        return getRules().isWorldEnabled(worldKey);
     }
 
     public boolean isPvpZoneEnabled(String zoneGroup) {
-        if (zoneGroup == null || pvpZoneEnabled == null) {
-            return false;
-        }
-        for (Map.Entry<String, Boolean> entry : pvpZoneEnabled.entrySet()) {
-            String key = entry.getKey();
-            if (key != null && key.equalsIgnoreCase(zoneGroup)) {
-                return Boolean.TRUE.equals(entry.getValue());
-            }
-        }
-        return false;
+        return getRules().isPvpZoneEnabled(zoneGroup);
     }
 
     public PvpDropMode getPvpDropMode(String zoneGroup) {
-        if (zoneGroup == null || pvpZoneDropModes == null) {
-            return PvpDropMode.DEFAULT;
-        }
-        for (Map.Entry<String, String> entry : pvpZoneDropModes.entrySet()) {
-            String key = entry.getKey();
-            if (key != null && key.equalsIgnoreCase(zoneGroup)) {
-                return PvpDropMode.fromString(entry.getValue());
-            }
+        return getRules().getPvpDropMode(zoneGroup);
+    }
+
+    /**
+     * Lookup table compiled from this config for use on hot paths.
+     */
+    public ZoneRules getRules() {
+        ZoneRules compiled = rules;
+        if (compiled == null) {
+            compiled = compileRules();
+            rules = compiled;
         }
-        return PvpDropMode.DEFAULT;
+        return compiled;
+    }
+
+    public List<PvpRegionConfig> getPvpRegions() {
+        return pvpRegions == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(pvpRegions));
     }
 
     public double getPvpPartialDropAmountPercent() {
@@ -106,6 +218,259 @@ public final class ZonePvpControlConfig {
         return pvpPartialDropDurabilityPercent;
     }
 
+    public int getPvpCombatTagSeconds() {
+        return pvpCombatTagSeconds;
+    }
+
+    public int getPvpSpawnProtectionSeconds() {
+        return pvpSpawnProtectionSeconds;
+    }
+
+    public int getZoneCacheCellSize() {
+        return zoneCacheCellSize;
+    }
+
+    public int getZoneCacheCapacity() {
+        return zoneCacheCapacity;
+    }
+
+    public int getZoneRasterRadius() {
+        return zoneRasterRadius;
+    }
+
+    public int getZoneRasterCellSize() {
+        return zoneRasterCellSize;
+    }
+
+    public String getZoneRasterDirectory() {
+        return zoneRasterDirectory;
+    }
+
+    public double getZoneRecheckMinDistance() {
+        return zoneRecheckMinDistance;
+    }
+
+    public int getZoneForcedRefreshPolls() {
+        return zoneForcedRefreshPolls;
+    }
+
+    public double getZoneBorderProbeDistance() {
+        return zoneBorderProbeDistance;
+    }
+
+    public double getPlayerMaxSpeed() {
+        return playerMaxSpeed;
+    }
+
+    public double getZoneBorderMargin() {
+        return zoneBorderMargin;
+    }
+
+    public int getZoneBorderDwellMillis() {
+        return zoneBorderDwellMillis;
+    }
+
+    public int getZoneTrackingBudgetMicros() {
+        return zoneTrackingBudgetMicros;
+    }
+
+    public int getZoneEvaluationThreads() {
+        return zoneEvaluationThreads;
+    }
+
+    /**
+     * Tracking mode parsed from {@code zone_tracking_mode}; read per player on every tick.
+     */
+    public ZoneTrackingMode getZoneTrackingMode() {
+        ZoneTrackingMode mode = trackingMode;
+        if (mode == null) {
+            mode = ZoneTrackingMode.fromString(zoneTrackingMode);
+            trackingMode = mode;
+        }
+        return mode;
+    }
+
+    public int getZoneTickBudget() {
+        return zoneTickBudget;
+    }
+
+    public int getZoneTickForcedRefreshTicks() {
+        return zoneTickForcedRefreshTicks;
+    }
+
+    public int getOperatorCacheTtlSeconds() {
+        return operatorCacheTtlSeconds;
+    }
+
+    public int getPlayerStateIdleSeconds() {
+        return playerStateIdleSeconds;
+    }
+
+    /**
+     * Audit level parsed from {@code pvp_audit_level}; read on every PvP damage decision.
+     */
+    public PvpAuditLevel getPvpAuditLevel() {
+        PvpAuditLevel level = auditLevel;
+        if (level == null) {
+            level = PvpAuditLevel.fromString(pvpAuditLevel);
+            auditLevel = level;
+        }
+        return level;
+    }
+
+    public int getPvpAuditBufferSize() {
+        return pvpAuditBufferSize;
+    }
+
+    public int getPvpAuditMaxFileMb() {
+        return pvpAuditMaxFileMb;
+    }
+
+    public int getPvpAuditMaxFiles() {
+        return pvpAuditMaxFiles;
+    }
+
+    public boolean isZoneTraceEnabled() {
+        return zoneTraceEnabled;
+    }
+
+    public int getZoneTraceMaxFileMb() {
+        return zoneTraceMaxFileMb;
+    }
+
+    /**
+     * A custom region overriding zone group settings: an axis-aligned box given by {@code min} and
+     * {@code max}, or a polygon given by {@code points}, with corners as {@code [x, z]} block
+     * coordinates. Where regions overlap, the highest priority wins, then the one listed first.
+     */
+    public static final class PvpRegionConfig {
+
+        @SerializedName("name")
+        private String name = "";
+
+        // World the region is in; empty for every world.
+        @SerializedName("world")
+        private String world = "";
+
+        @SerializedName("priority")
+        private int priority;
+
+        @SerializedName(value = "pvp_enabled", alternate = {"pvpEnabled"})
+        private boolean pvpEnabled;
+
+        // FULL or PARTIAL; empty to use the zone group's drop mode.
+        @SerializedName(value = "drop_mode", alternate = {"dropMode"})
+        private String dropMode = "";
+
+        @SerializedName("min")
+        private double[] min;
+
+        @SerializedName("max")
+        private double[] max;
+
+        @SerializedName("points")
+        private List<double[]> points;
+
+        public String getName() {
+            return name;
+        }
+
+        public String getWorld() {
+            return world;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public boolean isPvpEnabled() {
+            return pvpEnabled;
+        }
+
+        public String getDropMode() {
+            return dropMode;
+        }
+
+        public double[] getMin() {
+            return min == null ? null : min.clone();
+        }
+
+        public double[] getMax() {
+            return max == null ? null : max.clone();
+        }
+
+        public List<double[]> getPoints() {
+            return points == null ? null : Collections.unmodifiableList(new ArrayList<>(points));
+        }
+
+        public boolean isPolygon() {
+            return points != null;
+        }
+
+        /**
+         * @return why the region's shape is unusable, or null if it is a valid box or polygon
+         */
+        String shapeProblem() {
+            if (points != null) {
+                if (min != null || max != null) {
+                    return "has both points and min/max";
+                }
+                if (points.size() < 3) {
+                    return "needs at least 3 points";
+                }
+                for (double[] point : points) {
+                    if (!isCoordinate(point)) {
+                        return "has a point that is not [x, z]";
+                    }
+                }
+                return null;
+            }
+            if (!isCoordinate(min) || !isCoordinate(max)) {
+                return "needs min and max as [x, z], or points";
+            }
+            if (min[0] > max[0] || min[1] > max[1]) {
+                return "has min greater than max";
+            }
+            return null;
+        }
+
+        private static boolean isCoordinate(double[] point) {
+            return point != null && point.length == 2 && Double.isFinite(point[0]) && Double.isFinite(point[1]);
+        }
+    }
+
+    public enum PvpAuditLevel {
+        OFF,
+        BLOCKED,
+        ALL;
+
+        public static PvpAuditLevel fromString(String value) {
+            if (value == null) {
+                return OFF;
+            }
+            String normalized = value.trim().toUpperCase(Locale.ROOT);
+            if ("ALL".equals(normalized)) {
+                return ALL;
+            }
+            if ("BLOCKED".equals(normalized)) {
+                return BLOCKED;
+            }
+            return OFF;
+        }
+    }
+
+    public enum ZoneTrackingMode {
+        POLL,
+        TICK;
+
+        public static ZoneTrackingMode fromString(String value) {
+            if (value != null && "TICK".equals(value.trim().toUpperCase(Locale.ROOT))) {
+                return TICK;
+            }
+            return POLL;
+        }
+    }
+
     public enum PvpDropMode {
         FULL,
         PARTIAL,
@@ -115,7 +480,7 @@ public final class ZonePvpControlConfig {
             if (value == null) {
                 return DEFAULT;
             }
-            String normalized = value.trim().toUpperCase();
+            String normalized = value.trim().toUpperCase(Locale.ROOT);
             if ("FULL".equals(normalized)) {
                 return FULL;
             }
@@ -126,25 +491,218 @@ public final class ZonePvpControlConfig {
         }
     }
 
+    public static Path resolveConfigPath(JavaPlugin plugin) {
+        return DataPaths.resolveDataPath(plugin).resolve("config.json");
+    }
+
+    /**
+     * Load the config file, creating it with defaults if it does not exist. A config that fails
+     * {@link #validate()} is rejected as on reload: the defaults are used and the file is left as it
+     * is, so it can be fixed and reloaded.
+     */
     public static ZonePvpControlConfig load(JavaPlugin plugin) {
-        Path dataPath = DataPaths.resolveDataPath(plugin);
-        Path configPath = dataPath.resolve("config.json");
+        Path configPath = resolveConfigPath(plugin);
         if (Files.exists(configPath)) {
-            try (BufferedReader reader = Files.newBufferedReader(configPath)) {
-                ZonePvpControlConfig config = GSON.fromJson(reader, ZonePvpControlConfig.class);
-                if (config != null) {
+            try {
+                ZonePvpControlConfig config = read(configPath);
+                List<String> problems = config.validate();
+                if (problems.isEmpty()) {
                     return config;
                 }
+                LOGGER.atWarning().log("ZonePVPControl config is invalid. Using defaults: " + problems);
+                return defaults();
             } catch (Exception ex) {
                 LOGGER.atWarning().withCause(ex).log("Failed to read ZonePVPControl config. Using defaults.");
             }
         }
 
-        ZonePvpControlConfig defaults = new ZonePvpControlConfig();
+        ZonePvpControlConfig defaults = defaults();
         defaults.save(configPath);
         return defaults;
     }
 
+    private static ZonePvpControlConfig defaults() {
+        ZonePvpControlConfig defaults = new ZonePvpControlConfig();
+        defaults.compile();
+        return defaults;
+    }
+
+    /**
+     * Parse a config file and compile its rules.
+     *
+     * @param configPath the config file
+     * @return the parsed config
+     * @throws IOException        if the file cannot be read
+     * @throws JsonParseException if the file is not a valid config
+     */
+    public static ZonePvpControlConfig read(Path configPath) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(configPath)) {
+            ZonePvpControlConfig config = GSON.fromJson(reader, ZonePvpControlConfig.class);
+            if (config == null) {
+                throw new JsonParseException("Config file is empty.");
+            }
+            config.compile();
+            return config;
+        }
+    }
+
+    /**
+     * Parse a config from JSON, as recorded in zone traces, and compile its rules.
+     *
+     * @param json the config as JSON
+     * @return the parsed config
+     * @throws JsonParseException if the JSON is not a valid config
+     */
+    public static ZonePvpControlConfig fromJson(String json) {
+        ZonePvpControlConfig config = GSON.fromJson(json, ZonePvpControlConfig.class);
+        if (config == null) {
+            throw new JsonParseException("Config is empty.");
+        }
+        config.compile();
+        return config;
+    }
+
+    private void compile() {
+        rules = compileRules();
+        trackingMode = ZoneTrackingMode.fromString(zoneTrackingMode);
+        auditLevel = PvpAuditLevel.fromString(pvpAuditLevel);
+    }
+
+    /**
+     * This config as JSON, in the format of the config file.
+     */
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    /**
+     * Check settings that parse but cannot be applied as written, such as unknown mode names or
+     * negative sizes.
+     *
+     * @return a description of each problem, empty if there are none
+     */
+    public List<String> validate() {
+        List<String> problems = new ArrayList<>();
+        if (pvpZoneDropModes != null) {
+            for (Map.Entry<String, String> entry : pvpZoneDropModes.entrySet()) {
+                if (!isOneOf(entry.getValue(), PvpDropMode.values())) {
+                    problems.add("pvp_zone_drop_modes." + entry.getKey() + " is not FULL, PARTIAL or DEFAULT: "
+                            + entry.getValue());
+                }
+            }
+        }
+        if (pvpRegions != null) {
+            for (int i = 0; i < pvpRegions.size(); i++) {
+                PvpRegionConfig region = pvpRegions.get(i);
+                String label = "pvp_regions[" + i + "]";
+                if (region == null) {
+                    problems.add(label + " is empty");
+                    continue;
+                }
+                if (region.name != null && !region.name.isBlank()) {
+                    label = label + " (" + region.name + ")";
+                }
+                if (region.dropMode != null && !region.dropMode.isBlank()
+                        && !isOneOf(region.dropMode, PvpDropMode.values())) {
+                    problems.add(label + ".drop_mode is not FULL, PARTIAL or DEFAULT: " + region.dropMode);
+                }
+                String shapeProblem = region.shapeProblem();
+                if (shapeProblem != null) {
+                    problems.add(label + " " + shapeProblem);
+                }
+            }
+        }
+        if (!isOneOf(zoneTrackingMode, ZoneTrackingMode.values())) {
+            problems.add("zone_tracking_mode is not POLL or TICK: " + zoneTrackingMode);
+        }
+        if (!isOneOf(pvpAuditLevel, PvpAuditLevel.values())) {
+            problems.add("pvp_audit_level is not OFF, BLOCKED or ALL: " + pvpAuditLevel);
+        }
+        checkRange(problems, "pvp_partial_drop_amount_percent", pvpPartialDropAmountPercent, 0.0, 100.0);
+        checkRange(problems, "pvp_partial_drop_durability_percent", pvpPartialDropDurabilityPercent, 0.0, 100.0);
+        checkAtLeast(problems, "pvp_combat_tag_seconds", pvpCombatTagSeconds, 0);
+        checkAtLeast(problems, "pvp_spawn_protection_seconds", pvpSpawnProtectionSeconds, 0);
+        checkAtLeast(problems, "zone_cache_cell_size", zoneCacheCellSize, 0);
+        checkAtLeast(problems, "zone_cache_capacity", zoneCacheCapacity, 1);
+        checkAtLeast(problems, "zone_raster_radius", zoneRasterRadius, 0);
+        checkAtLeast(problems, "zone_raster_cell_size", zoneRasterCellSize, 1);
+        checkAtLeast(problems, "zone_recheck_min_distance", zoneRecheckMinDistance, 0);
+        checkAtLeast(problems, "zone_forced_refresh_polls", zoneForcedRefreshPolls, 1);
+        checkAtLeast(problems, "zone_border_probe_distance", zoneBorderProbeDistance, 0);
+        checkAtLeast(problems, "player_max_speed", playerMaxSpeed, 0);
+        checkAtLeast(problems, "zone_border_margin", zoneBorderMargin, 0);
+        checkAtLeast(problems, "zone_border_dwell_millis", zoneBorderDwellMillis, 0);
+        checkAtLeast(problems, "zone_tracking_budget_micros", zoneTrackingBudgetMicros, 1);
+        checkAtLeast(problems, "zone_evaluation_threads", zoneEvaluationThreads, 0);
+        checkAtLeast(problems, "zone_tick_budget", zoneTickBudget, 0);
+        checkAtLeast(problems, "zone_tick_forced_refresh_ticks", zoneTickForcedRefreshTicks, 1);
+        checkAtLeast(problems, "operator_cache_ttl_seconds", operatorCacheTtlSeconds, 1);
+        checkAtLeast(problems, "player_state_idle_seconds", playerStateIdleSeconds, 1);
+        checkAtLeast(problems, "pvp_audit_buffer_size", pvpAuditBufferSize, 1);
+        checkAtLeast(problems, "pvp_audit_max_file_mb", pvpAuditMaxFileMb, 1);
+        checkAtLeast(problems, "pvp_audit_max_files", pvpAuditMaxFiles, 1);
+        checkAtLeast(problems, "zone_trace_max_file_mb", zoneTraceMaxFileMb, 1);
+        return problems;
+    }
+
+    /**
+     * Names of settings that differ from another config but only take effect on restart.
+     *
+     * @param next the config being switched to
+     * @return the changed setting names, empty if there are none
+     */
+    public List<String> restartRequiredChanges(ZonePvpControlConfig next) {
+        List<String> changed = new ArrayList<>();
+        if (zoneCacheCellSize != next.zoneCacheCellSize || zoneCacheCapacity != next.zoneCacheCapacity) {
+            changed.add("zone_cache_*");
+        }
+        if (zoneRasterRadius != next.zoneRasterRadius || zoneRasterCellSize != next.zoneRasterCellSize
+                || !Objects.equals(zoneRasterDirectory, next.zoneRasterDirectory)) {
+            changed.add("zone_raster_*");
+        }
+        if (zoneEvaluationThreads != next.zoneEvaluationThreads) {
+            changed.add("zone_evaluation_threads");
+        }
+        if (operatorCacheTtlSeconds != next.operatorCacheTtlSeconds) {
+            changed.add("operator_cache_ttl_seconds");
+        }
+        if (pvpAuditBufferSize != next.pvpAuditBufferSize || pvpAuditMaxFileMb != next.pvpAuditMaxFileMb
+                || pvpAuditMaxFiles != next.pvpAuditMaxFiles) {
+            changed.add("pvp_audit_buffer_size/max_file_mb/max_files");
+        }
+        return changed;
+    }
+
+    private static boolean isOneOf(String value, Enum<?>[] names) {
+        if (value == null) {
+            return false;
+        }
+        String normalized = value.trim();
+        for (Enum<?> name : names) {
+            if (name.name().equalsIgnoreCase(normalized)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkAtLeast(List<String> problems, String key, double value, int min) {
+        if (!(value >= min)) {
+            problems.add(key + " must be at least " + min + ": " + value);
+        }
+    }
+
+    private static void checkRange(List<String> problems, String key, double value, double min, double max) {
+        if (!(value >= min && value <= max)) {
+            problems.add(key + " must be between " + min + " and " + max + ": " + value);
+        }
+    }
+
+    private ZoneRules compileRules() {
+        return ZoneRules.compile(pvpZoneEnabled, pvpZoneDropModes, restrictToWorlds, enabledWorlds,
+                pvpPartialDropAmountPercent, pvpPartialDropDurabilityPercent, operatorGroups, pvpRegions);
+    }
+
     private void save(Path configPath) {
         try (BufferedWriter writer = Files.newBufferedWriter(configPath)) {
             GSON.toJson(this, writer);
@@ -0,0 +1,66 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plugin-wide event counters. Each counter is a striped {@link LongAdder}, so world threads can
+ * count concurrently without contending on a shared cache line; per-world hot loops accumulate
+ * locally and add once per poll or tick.
+ */
+public final class ZonePvpMetrics {
+
+    public enum Counter {
+        PLAYERS_EVALUATED("players evaluated"),
+        PLAYERS_SKIPPED("players skipped"),
+        GENERATOR_CALLS("generator calls"),
+        PVP_ALLOWED("PvP hits allowed"),
+        PVP_BLOCKED("PvP hits blocked"),
+        NOTIFICATIONS_SENT("notifications sent"),
+        DROP_RULES_APPLIED("drop rules applied");
+
+        private final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+
+    ZonePvpMetrics() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    void add(Counter counter, long amount) {
+        if (amount != 0L) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Current value of every counter, indexed by {@link Counter#ordinal()}.
+     */
+    public long[] snapshot() {
+        long[] values = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            values[i] = counters[i].sum();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,94 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-only view of the zone and PvP status this plugin tracks for online players, for other plugins
+ * that need it without evaluating zones themselves. Get it from {@link ZonePVPControl#getService()}.
+ * <p>
+ * Every method is safe to call from any thread and never blocks: statuses are immutable snapshots
+ * republished whenever a player's zone, region, PvP flag, combat tag or spawn protection changes. A
+ * status reflects the player's latest zone check, so it can trail their position by up to one poll
+ * interval (one tick in TICK mode), and a restarted combat tag's end by up to a second. The zone's
+ * PvP flag and whether the player can fight right now are reported separately: see {@link
+ * #isPvpEnabled(UUID)} and {@link #hasPvp(UUID)}. Players who are not being tracked, for example in
+ * a world outside the allowlist or not yet checked, have no status.
+ */
+public interface ZonePvpService {
+
+    /**
+     * Zone group id reported for players without a status or outside any zone.
+     */
+    int NO_ZONE_GROUP = ZoneRegistry.NO_ZONE;
+
+    /**
+     * The current status of a player.
+     *
+     * @param playerId the player's UUID
+     * @return the status, or null if the player is not tracked
+     */
+    ZonePvpStatus getStatus(UUID playerId);
+
+    /**
+     * Whether PvP is on where a player stands, by zone and custom region; false if the player is not
+     * tracked. Combat tags and spawn protection are not taken into account.
+     */
+    boolean isPvpEnabled(UUID playerId);
+
+    /**
+     * Whether a player can deal and take PvP damage right now, as the plugin decides it: PvP is on
+     * where they stand or they are combat tagged, and they are not under spawn protection. False if
+     * the player is not tracked.
+     */
+    boolean hasPvp(UUID playerId);
+
+    /**
+     * Look up players in bulk, filling primitive arrays so large batches allocate nothing.
+     *
+     * @param playerIds    the players to look up
+     * @param count        number of entries of {@code playerIds} to look up
+     * @param pvpEnabled   receives the PvP flag of each player's zone or region, as
+     *                     {@link #isPvpEnabled(UUID)}; false if not tracked
+     * @param zoneGroupIds receives each player's zone group id, {@link #NO_ZONE_GROUP} if not tracked or
+     *                     in no zone; may be null
+     * @return number of players found
+     */
+    int queryPlayers(UUID[] playerIds, int count, boolean[] pvpEnabled, int[] zoneGroupIds);
+
+    /**
+     * Number of tracked players in a zone group of a world, in constant time.
+     *
+     * @param world     the world key, as in {@link ZonePvpStatus#world()}
+     * @param zoneGroup the zone group name, such as {@code Zone4}
+     * @return the player count, 0 for an unknown world or group
+     */
+    int getPlayerCount(String world, String zoneGroup);
+
+    /**
+     * Tracked players in a zone group of a world, in time proportional to their number.
+     *
+     * @param world     the world key, as in {@link ZonePvpStatus#world()}
+     * @param zoneGroup the zone group name, such as {@code Zone2}
+     * @return a copy of the players' UUIDs, empty for an unknown world or group
+     */
+    List<UUID> getPlayers(String world, String zoneGroup);
+
+    /**
+     * Keys of the worlds that have had players in a zone group.
+     */
+    Set<String> getWorlds();
+
+    /**
+     * Name of a zone group id, as found in {@link ZonePvpStatus#zoneGroup()}.
+     *
+     * @return the group name, or null for an unknown id
+     */
+    String getZoneGroupName(int zoneGroupId);
+
+    /**
+     * Number of zone group ids handed out so far; ids run from 0 to one less than this.
+     */
+    int getZoneGroupCount();
+}
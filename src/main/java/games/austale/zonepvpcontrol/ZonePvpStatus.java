@@ -0,0 +1,56 @@
+package games.austale.zonepvpcontrol;
+
+/**
+ * A player's zone and PvP status as of their latest zone check, combat tag or spawn protection
+ * change. Immutable.
+ * <p>
+ * {@code pvpEnabled} is the zone's (or region's) PvP flag only. Whether the player can actually
+ * fight other players right now also depends on their combat tag and spawn protection; use {@link
+ * #hasPvp()} for that, as the plugin's damage decisions do. The timers are published as {@link
+ * System#nanoTime()} deadlines, so their expiry needs no republish. A combat tag restarted by a hit
+ * is republished at most about once a second, so its published end may be up to a second earlier
+ * than the one the plugin decides damage with.
+ *
+ * @param world                   the world key the player was checked in
+ * @param zone                    the zone name, such as {@code Zone2_Forest}, or null outside any zone
+ * @param zoneGroup               the zone group name, such as {@code Zone2}, or null outside any zone
+ * @param zoneGroupId             the dense id of the zone group, or {@link ZonePvpService#NO_ZONE_GROUP}
+ * @param region                  the name of the custom region the player is in, or null for none
+ * @param pvpEnabled              whether the zone or region the player stands in has PvP on
+ * @param combatTagEndNanos       when the player's combat tag ends, or {@link #NOT_RUNNING}
+ * @param spawnProtectionEndNanos when the player's spawn protection ends, or {@link #NOT_RUNNING}
+ */
+public record ZonePvpStatus(String world, String zone, String zoneGroup, int zoneGroupId, String region,
+                            boolean pvpEnabled, long combatTagEndNanos, long spawnProtectionEndNanos) {
+
+    /**
+     * End time of a combat tag or spawn protection that is not running.
+     */
+    public static final long NOT_RUNNING = Long.MIN_VALUE;
+
+    /**
+     * Whether the player is combat tagged, which keeps PvP on for them anywhere.
+     */
+    public boolean isCombatTagged() {
+        return isRunning(combatTagEndNanos);
+    }
+
+    /**
+     * Whether the player is under spawn protection, which keeps PvP off for them anywhere.
+     */
+    public boolean isSpawnProtected() {
+        return isRunning(spawnProtectionEndNanos);
+    }
+
+    /**
+     * Whether the player can deal and take PvP damage: in a PvP zone or region, or combat tagged,
+     * and not under spawn protection.
+     */
+    public boolean hasPvp() {
+        return !isSpawnProtected() && (pvpEnabled || isCombatTagged());
+    }
+
+    private static boolean isRunning(long endNanos) {
+        return endNanos != NOT_RUNNING && System.nanoTime() - endNanos < 0L;
+    }
+}
@@ -0,0 +1,276 @@
+package games.austale.zonepvpcontrol;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zone layout of a world seed baked into a file of one byte per cell and memory-mapped read-only,
+ * so a lookup inside the baked area is a single off-heap read. Baked files are written to a
+ * temporary file and moved into place, so several server processes can map the same file. Files
+ * are keyed by seed and by a {@link #fingerprint generator fingerprint}, so worlds that share a
+ * seed but not a generator bake separate files.
+ * <p>
+ * Layout (big-endian): a fixed {@value #HEADER_BYTES}-byte header with magic, version, seed, cell
+ * size, first cell and dimensions, the offset of the zone table and the generator fingerprint; the
+ * cell bytes row by row (0 for no zone, otherwise a 1-based index into the zone table); then the
+ * zone table as a count followed by length-prefixed UTF-8 zone names. Each cell holds the zone at
+ * its center.
+ */
+final class ZoneRaster {
+
+    private static final int MAGIC = 0x5A505652;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAX_ZONES = 255;
+    private static final long MAX_CELLS = Integer.MAX_VALUE - HEADER_BYTES - (1L << 20);
+    // Probe points per side of the grid sampled for the generator fingerprint.
+    private static final int FINGERPRINT_GRID = 16;
+
+    private final ByteBuffer cells;
+    private final long fingerprint;
+    private final int cellSize;
+    private final int minCellX;
+    private final int minCellZ;
+    private final int width;
+    private final int height;
+    // Zone registry id by cell byte; index 0 is no zone.
+    private final int[] zoneIds;
+
+    private ZoneRaster(ByteBuffer cells, long fingerprint, int cellSize, int minCellX, int minCellZ, int width,
+                       int height, int[] zoneIds) {
+        this.cells = cells;
+        this.fingerprint = fingerprint;
+        this.cellSize = cellSize;
+        this.minCellX = minCellX;
+        this.minCellZ = minCellZ;
+        this.width = width;
+        this.height = height;
+        this.zoneIds = zoneIds;
+    }
+
+    static Path fileFor(Path directory, int seed, long fingerprint) {
+        return directory.resolve("zone-raster-" + seed + "-" + String.format("%016x", fingerprint) + ".bin");
+    }
+
+    /**
+     * Fingerprint the generator a raster is baked from: its type together with the zones it resolves
+     * on a grid of probe points across the baked area. A different generator, or a changed generator
+     * config, under the same seed almost always resolves some probe differently.
+     *
+     * @param generatorType names the world's generator provider and generator
+     * @param radius        half the edge length of the baked square in blocks
+     * @param sampler       the world's zone sampler; only used by the calling thread
+     * @param zoneRegistry  the registry the sampler's ids belong to
+     */
+    static long fingerprint(String generatorType, int radius, ZoneSampler sampler, ZoneRegistry zoneRegistry) {
+        long hash = hash(0xCBF29CE484222325L, generatorType);
+        for (int i = 0; i < FINGERPRINT_GRID; i++) {
+            double z = -radius + 2.0 * radius * (i + 0.5) / FINGERPRINT_GRID;
+            for (int j = 0; j < FINGERPRINT_GRID; j++) {
+                double x = -radius + 2.0 * radius * (j + 0.5) / FINGERPRINT_GRID;
+                int zoneId = sampler.sampleZoneId(x, z);
+                hash = hash(hash, zoneId == ZoneRegistry.NO_ZONE ? "" : zoneRegistry.zoneName(zoneId));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Map a baked raster if the file exists and matches the requested seed, generator fingerprint,
+     * cell size and radius.
+     *
+     * @return the raster, or null if there is no matching file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static ZoneRaster open(Path file, int seed, long fingerprint, int cellSize, int radius, ZoneRegistry zoneRegistry)
+            throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a zone raster file: " + file);
+            }
+            Extent extent = Extent.of(cellSize, radius);
+            if (buffer.getInt(4) != VERSION || buffer.getLong(8) != seed || buffer.getInt(16) != cellSize
+                    || buffer.getInt(20) != extent.minCell || buffer.getInt(24) != extent.minCell
+                    || buffer.getInt(28) != extent.size || buffer.getInt(32) != extent.size
+                    || buffer.getLong(44) != fingerprint) {
+                // Baked by another version or generator, or for another seed or area; the caller rebakes it.
+                return null;
+            }
+            long tableOffset = buffer.getLong(36);
+            if (tableOffset != HEADER_BYTES + extent.cellCount() || tableOffset + 4 > buffer.capacity()) {
+                throw new IOException("Truncated zone raster file: " + file);
+            }
+
+            ByteBuffer table = buffer.duplicate().position((int) tableOffset);
+            int zoneCount = table.getInt();
+            if (zoneCount < 0 || zoneCount > MAX_ZONES) {
+                throw new IOException("Corrupt zone table in " + file);
+            }
+            int[] zoneIds = new int[zoneCount + 1];
+            zoneIds[0] = ZoneRegistry.NO_ZONE;
+            for (int i = 1; i <= zoneCount; i++) {
+                byte[] name = new byte[table.getShort() & 0xFFFF];
+                table.get(name);
+                zoneIds[i] = zoneRegistry.zoneId(new String(name, StandardCharsets.UTF_8));
+            }
+
+            ByteBuffer cells = buffer.duplicate().position(HEADER_BYTES).limit((int) tableOffset).slice();
+            return new ZoneRaster(cells, fingerprint, cellSize, extent.minCell, extent.minCell, extent.size, extent.size, zoneIds);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed zone raster file: " + file, e);
+        }
+    }
+
+    /**
+     * Sample every cell of a square of the given radius around the origin and write the raster file.
+     *
+     * @param file         the file to write, replaced atomically
+     * @param seed         the world seed, recorded in the header
+     * @param fingerprint  the generator fingerprint, recorded in the header
+     * @param cellSize     the cell edge length in blocks
+     * @param radius       half the edge length of the baked square in blocks
+     * @param sampler      the zone sampler to bake from; only used by the calling thread
+     * @param zoneRegistry the registry the sampler's ids belong to
+     * @throws IOException if writing fails or the area holds more zones than a cell byte can index
+     */
+    static void bake(Path file, int seed, long fingerprint, int cellSize, int radius, ZoneSampler sampler,
+                     ZoneRegistry zoneRegistry) throws IOException {
+        Extent extent = Extent.of(cellSize, radius);
+        if (extent.cellCount() > MAX_CELLS) {
+            throw new IOException("Zone raster radius " + radius + " is too large for cell size " + cellSize);
+        }
+
+        // File index by registry id, 0 while unassigned.
+        int[] indexByZoneId = new int[16];
+        List<String> zoneNames = new ArrayList<>();
+        Path temp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(seed).putInt(cellSize)
+                    .putInt(extent.minCell).putInt(extent.minCell).putInt(extent.size).putInt(extent.size)
+                    .putLong(HEADER_BYTES + extent.cellCount()).putLong(fingerprint);
+            header.clear();
+            writeFully(channel, header);
+
+            ByteBuffer row = ByteBuffer.allocate(extent.size);
+            for (int cellZ = 0; cellZ < extent.size; cellZ++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Zone raster bake interrupted");
+                }
+                double z = ((double) extent.minCell + cellZ + 0.5) * cellSize;
+                row.clear();
+                for (int cellX = 0; cellX < extent.size; cellX++) {
+                    double x = ((double) extent.minCell + cellX + 0.5) * cellSize;
+                    int zoneId = sampler.sampleZoneId(x, z);
+                    int index = 0;
+                    if (zoneId != ZoneRegistry.NO_ZONE) {
+                        if (zoneId >= indexByZoneId.length) {
+                            indexByZoneId = Arrays.copyOf(indexByZoneId, Math.max(zoneId + 1, indexByZoneId.length * 2));
+                        }
+                        index = indexByZoneId[zoneId];
+                        if (index == 0) {
+                            if (zoneNames.size() == MAX_ZONES) {
+                                throw new IOException("More than " + MAX_ZONES + " zones in the baked area");
+                            }
+                            zoneNames.add(zoneRegistry.zoneName(zoneId));
+                            index = zoneNames.size();
+                            indexByZoneId[zoneId] = index;
+                        }
+                    }
+                    row.put((byte) index);
+                }
+                row.flip();
+                writeFully(channel, row);
+            }
+
+            int tableBytes = 4;
+            List<byte[]> encodedNames = new ArrayList<>(zoneNames.size());
+            for (String name : zoneNames) {
+                byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                encodedNames.add(encoded);
+                tableBytes += 2 + encoded.length;
+            }
+            ByteBuffer table = ByteBuffer.allocate(tableBytes);
+            table.putInt(encodedNames.size());
+            for (byte[] encoded : encodedNames) {
+                table.putShort((short) encoded.length).put(encoded);
+            }
+            table.flip();
+            writeFully(channel, table);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the zone id baked for the position, or {@link ZoneRegistry#NO_ZONE} outside the baked
+     * area or where the generator resolved no zone
+     */
+    int zoneIdAt(double x, double z) {
+        int cellX = Math.floorDiv((int) Math.floor(x), cellSize) - minCellX;
+        int cellZ = Math.floorDiv((int) Math.floor(z), cellSize) - minCellZ;
+        if (cellX < 0 || cellX >= width || cellZ < 0 || cellZ >= height) {
+            return ZoneRegistry.NO_ZONE;
+        }
+        int index = cells.get(cellZ * width + cellX) & 0xFF;
+        return index < zoneIds.length ? zoneIds[index] : ZoneRegistry.NO_ZONE;
+    }
+
+    int getCellSize() {
+        return cellSize;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        // Separate consecutive values.
+        return (hash ^ 0xFF) * 0x100000001B3L;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Cell range of a square baked area centered on the origin.
+     */
+    private record Extent(int minCell, int size) {
+        static Extent of(int cellSize, int radius) {
+            int minCell = Math.floorDiv(-radius, cellSize);
+            int maxCell = Math.floorDiv(radius - 1, cellSize);
+            return new Extent(minCell, maxCell - minCell + 1);
+        }
+
+        long cellCount() {
+            return (long) size * size;
+        }
+    }
+}
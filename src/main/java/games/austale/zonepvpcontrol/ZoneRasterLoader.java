@@ -0,0 +1,81 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.worldgen.WorldGenLoadException;
+import com.hypixel.hytale.server.worldgen.zone.ZonePatternGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads baked zone rasters for worlds in the background, baking them first when no matching file
+ * exists, and installs them on the world thread. Bakes run one at a time, so worlds sharing a seed
+ * and generator bake once and map the same file.
+ */
+final class ZoneRasterLoader {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final Path directory;
+    private final int radius;
+    private final int cellSize;
+    private final ZoneRegistry zoneRegistry;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ZonePVPControl-RasterBake");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ZoneRasterLoader(Path directory, int radius, int cellSize, ZoneRegistry zoneRegistry) {
+        this.directory = directory;
+        this.radius = radius;
+        this.cellSize = Math.max(1, cellSize);
+        this.zoneRegistry = zoneRegistry;
+    }
+
+    /**
+     * Load (or bake) the raster for a world's seed and generator and install it into the world's context.
+     */
+    void load(WorldZoneContext context) {
+        executor.execute(() -> {
+            World world = context.getWorld();
+            int seed = context.getSeed();
+            try {
+                ZonePatternGenerator zoneGenerator = WorldZoneContext.loadZoneGenerator(world, seed);
+                if (zoneGenerator == null) {
+                    return;
+                }
+                GeneratorZoneSampler sampler = new GeneratorZoneSampler(zoneGenerator, seed, zoneRegistry);
+                long fingerprint = ZoneRaster.fingerprint(WorldZoneContext.generatorType(world), radius, sampler,
+                        zoneRegistry);
+                Path file = ZoneRaster.fileFor(directory, seed, fingerprint);
+                ZoneRaster raster = ZoneRaster.open(file, seed, fingerprint, cellSize, radius, zoneRegistry);
+                if (raster == null) {
+                    LOGGER.atInfo().log("Baking zone raster for seed " + seed + " (radius " + radius + ") to " + file);
+                    long start = System.nanoTime();
+                    Files.createDirectories(directory);
+                    ZoneRaster.bake(file, seed, fingerprint, cellSize, radius, sampler, zoneRegistry);
+                    LOGGER.atInfo().log("Baked zone raster for seed " + seed + " in "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+                    raster = ZoneRaster.open(file, seed, fingerprint, cellSize, radius, zoneRegistry);
+                }
+                if (raster != null && world.isAlive()) {
+                    ZoneRaster loaded = raster;
+                    world.execute(() -> context.installRaster(loaded));
+                }
+            } catch (IOException | WorldGenLoadException e) {
+                LOGGER.atWarning().withCause(e).log("Zone raster unavailable for seed " + seed
+                        + "; using the world generator.");
+            }
+        });
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.server.worldgen.zone.Zone;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to zones and zone groups the first time they are seen, so hot paths can
+ * store and compare ids instead of names. A zone's group is the part of its name before the first
+ * underscore (for example {@code Zone2_Forest} belongs to {@code Zone2}).
+ * <p>
+ * Lookups of known zones are lock-free; registration of new zones is synchronized and publishes
+ * grown arrays before the id becomes visible.
+ */
+final class ZoneRegistry {
+
+    static final int NO_ZONE = -1;
+
+    private final Map<String, Integer> zoneIdsByName = new ConcurrentHashMap<>();
+    private final Map<String, Integer> groupIdsByName = new ConcurrentHashMap<>();
+
+    private volatile String[] zoneNames = new String[0];
+    private volatile int[] groupByZone = new int[0];
+    private volatile String[] groupNames = new String[0];
+
+    /**
+     * Get the id of a zone, registering it and its group if needed.
+     *
+     * @param zone the zone
+     * @return the zone id, or {@link #NO_ZONE} for a null zone
+     */
+    int zoneId(Zone zone) {
+        return zone == null ? NO_ZONE : zoneId(zone.name());
+    }
+
+    /**
+     * Get the id of a zone by name, registering it and its group if needed.
+     *
+     * @param name the zone name
+     * @return the zone id, or {@link #NO_ZONE} for a null name
+     */
+    int zoneId(String name) {
+        if (name == null) {
+            return NO_ZONE;
+        }
+        Integer id = zoneIdsByName.get(name);
+        return id != null ? id : register(name);
+    }
+
+    int groupOf(int zoneId) {
+        int[] groups = groupByZone;
+        return zoneId >= 0 && zoneId < groups.length ? groups[zoneId] : NO_ZONE;
+    }
+
+    /**
+     * Get the id of a zone group already seen, without registering it.
+     *
+     * @return the group id, or {@link #NO_ZONE} if no zone of the group was seen
+     */
+    int findGroupId(String groupName) {
+        Integer id = groupName == null ? null : groupIdsByName.get(groupName);
+        return id == null ? NO_ZONE : id;
+    }
+
+    String zoneName(int zoneId) {
+        String[] names = zoneNames;
+        return zoneId >= 0 && zoneId < names.length ? names[zoneId] : null;
+    }
+
+    String groupName(int groupId) {
+        String[] names = groupNames;
+        return groupId >= 0 && groupId < names.length ? names[groupId] : null;
+    }
+
+    int zoneCount() {
+        return zoneNames.length;
+    }
+
+    int groupCount() {
+        return groupNames.length;
+    }
+
+    private synchronized int register(String name) {
+        Integer existing = zoneIdsByName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        int underscoreIndex = name.indexOf('_');
+        String group = underscoreIndex == -1 ? name : name.substring(0, underscoreIndex);
+        Integer groupId = groupIdsByName.get(group);
+        if (groupId == null) {
+            String[] groups = Arrays.copyOf(groupNames, groupNames.length + 1);
+            groupId = groups.length - 1;
+            groups[groupId] = group;
+            groupNames = groups;
+            groupIdsByName.put(group, groupId);
+        }
+
+        int zoneId = zoneNames.length;
+        String[] names = Arrays.copyOf(zoneNames, zoneId + 1);
+        names[zoneId] = name;
+        int[] groups = Arrays.copyOf(groupByZone, zoneId + 1);
+        groups[zoneId] = groupId;
+        groupByZone = groups;
+        zoneNames = names;
+        zoneIdsByName.put(name, zoneId);
+        return zoneId;
+    }
+}
@@ -0,0 +1,258 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable lookup table compiled from a loaded {@link ZonePvpControlConfig}.
+ * <p>
+ * Zone group and world keys are matched case-insensitively through an open-addressing table
+ * hashed on case-folded characters, so lookups are constant time and never allocate. Drop modes
+ * are parsed and partial drop percentages clamped once at compile time. Custom regions are ranked
+ * once and indexed per world on first use.
+ */
+public final class ZoneRules {
+
+    private static final byte PVP_UNSET = 0;
+    private static final byte PVP_DISABLED = 1;
+    private static final byte PVP_ENABLED = 2;
+
+    private final KeyIndex zoneGroups;
+    private final byte[] pvpByGroup;
+    private final ZonePvpControlConfig.PvpDropMode[] dropModeByGroup;
+
+    private final boolean restrictToWorlds;
+    private final KeyIndex enabledWorlds;
+
+    private final double partialDropAmountPercent;
+    private final double partialDropDurabilityPercent;
+
+    private final KeyIndex operatorGroups;
+
+    // Regions by descending priority, then config order.
+    private final List<PvpRegion> regions;
+    // Region index per lower-cased world key, built on first use.
+    private final Map<String, RegionIndex> regionIndexes = new ConcurrentHashMap<>();
+
+    private ZoneRules(KeyIndex zoneGroups, byte[] pvpByGroup, ZonePvpControlConfig.PvpDropMode[] dropModeByGroup,
+                      boolean restrictToWorlds, KeyIndex enabledWorlds,
+                      double partialDropAmountPercent, double partialDropDurabilityPercent,
+                      KeyIndex operatorGroups, List<PvpRegion> regions) {
+        this.zoneGroups = zoneGroups;
+        this.pvpByGroup = pvpByGroup;
+        this.dropModeByGroup = dropModeByGroup;
+        this.restrictToWorlds = restrictToWorlds;
+        this.enabledWorlds = enabledWorlds;
+        this.partialDropAmountPercent = partialDropAmountPercent;
+        this.partialDropDurabilityPercent = partialDropDurabilityPercent;
+        this.operatorGroups = operatorGroups;
+        this.regions = regions;
+    }
+
+    static ZoneRules compile(Map<String, Boolean> pvpZoneEnabled, Map<String, String> pvpZoneDropModes,
+                             boolean restrictToWorlds, List<String> enabledWorlds,
+                             double partialDropAmountPercent, double partialDropDurabilityPercent,
+                             List<String> operatorGroups,
+                             List<ZonePvpControlConfig.PvpRegionConfig> regionConfigs) {
+        List<String> groupKeys = new ArrayList<>();
+        if (pvpZoneEnabled != null) {
+            groupKeys.addAll(pvpZoneEnabled.keySet());
+        }
+        if (pvpZoneDropModes != null) {
+            groupKeys.addAll(pvpZoneDropModes.keySet());
+        }
+        KeyIndex zoneGroups = KeyIndex.of(groupKeys);
+
+        byte[] pvpByGroup = new byte[zoneGroups.size()];
+        if (pvpZoneEnabled != null) {
+            for (Map.Entry<String, Boolean> entry : pvpZoneEnabled.entrySet()) {
+                int group = zoneGroups.indexOf(entry.getKey());
+                if (group >= 0 && pvpByGroup[group] == PVP_UNSET) {
+                    pvpByGroup[group] = Boolean.TRUE.equals(entry.getValue()) ? PVP_ENABLED : PVP_DISABLED;
+                }
+            }
+        }
+
+        ZonePvpControlConfig.PvpDropMode[] dropModeByGroup = new ZonePvpControlConfig.PvpDropMode[zoneGroups.size()];
+        Arrays.fill(dropModeByGroup, ZonePvpControlConfig.PvpDropMode.DEFAULT);
+        boolean[] dropModeSet = new boolean[zoneGroups.size()];
+        if (pvpZoneDropModes != null) {
+            for (Map.Entry<String, String> entry : pvpZoneDropModes.entrySet()) {
+                int group = zoneGroups.indexOf(entry.getKey());
+                if (group >= 0 && !dropModeSet[group]) {
+                    dropModeByGroup[group] = ZonePvpControlConfig.PvpDropMode.fromString(entry.getValue());
+                    dropModeSet[group] = true;
+                }
+            }
+        }
+
+        List<PvpRegion> regions = new ArrayList<>();
+        if (regionConfigs != null) {
+            for (ZonePvpControlConfig.PvpRegionConfig regionConfig : regionConfigs) {
+                PvpRegion region = PvpRegion.compile(regionConfig);
+                if (region != null) {
+                    regions.add(region);
+                }
+            }
+        }
+        // Stable sort, so regions of equal priority keep their config order.
+        regions.sort(Comparator.comparingInt(PvpRegion::getPriority).reversed());
+
+        return new ZoneRules(zoneGroups, pvpByGroup, dropModeByGroup, restrictToWorlds,
+                KeyIndex.of(enabledWorlds == null ? List.of() : enabledWorlds),
+                clampPercent(partialDropAmountPercent), clampPercent(partialDropDurabilityPercent),
+                KeyIndex.of(trimAll(operatorGroups)), List.copyOf(regions));
+    }
+
+    public boolean isPvpZoneEnabled(String zoneGroup) {
+        int group = zoneGroups.indexOf(zoneGroup);
+        return group >= 0 && pvpByGroup[group] == PVP_ENABLED;
+    }
+
+    public ZonePvpControlConfig.PvpDropMode getPvpDropMode(String zoneGroup) {
+        int group = zoneGroups.indexOf(zoneGroup);
+        return group < 0 ? ZonePvpControlConfig.PvpDropMode.DEFAULT : dropModeByGroup[group];
+    }
+
+    public boolean isWorldEnabled(String worldKey) {
+        return !restrictToWorlds || enabledWorlds.indexOf(worldKey) >= 0;
+    }
+
+    /**
+     * Percentage of items lost in PARTIAL drop mode, clamped to [0, 100].
+     */
+    public double getPartialDropAmountPercent() {
+        return partialDropAmountPercent;
+    }
+
+    /**
+     * Percentage of durability lost in PARTIAL drop mode, clamped to [0, 100].
+     */
+    public double getPartialDropDurabilityPercent() {
+        return partialDropDurabilityPercent;
+    }
+
+    /**
+     * Whether a permission group name is one of the configured operator groups.
+     */
+    public boolean isOperatorGroup(String group) {
+        if (group == null) {
+            return false;
+        }
+        return operatorGroups.indexOf(group.trim()) >= 0;
+    }
+
+    /**
+     * Custom regions that apply in a world, indexed for position lookups.
+     *
+     * @param worldKey the world key, matched case-insensitively; null for regions without a world
+     * @return the world's region index
+     */
+    RegionIndex regionsFor(String worldKey) {
+        if (regions.isEmpty()) {
+            return RegionIndex.EMPTY;
+        }
+        String key = worldKey == null ? "" : worldKey.trim().toLowerCase(Locale.ROOT);
+        RegionIndex index = regionIndexes.get(key);
+        if (index == null) {
+            index = regionIndexes.computeIfAbsent(key,
+                    ignored -> RegionIndex.build(regions, worldKey == null ? null : key));
+        }
+        return index;
+    }
+
+    private static List<String> trimAll(List<String> values) {
+        List<String> trimmed = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    trimmed.add(value.trim());
+                }
+            }
+        }
+        return trimmed;
+    }
+
+    private static double clampPercent(double value) {
+        return Math.max(0.0, Math.min(100.0, value));
+    }
+
+    /**
+     * Case-insensitive open-addressing index from string keys to dense positions.
+     */
+    private static final class KeyIndex {
+        private final String[] keys;
+        private final int[] table;
+        private final int mask;
+
+        private KeyIndex(String[] keys, int[] table) {
+            this.keys = keys;
+            this.table = table;
+            this.mask = table.length - 1;
+        }
+
+        static KeyIndex of(List<String> candidates) {
+            int tableSize = Integer.highestOneBit(Math.max(2, candidates.size()) * 2 - 1) << 1;
+            int[] table = new int[tableSize];
+            Arrays.fill(table, -1);
+            List<String> keys = new ArrayList<>();
+            KeyIndex index = new KeyIndex(new String[0], table);
+            for (String key : candidates) {
+                if (key == null) {
+                    continue;
+                }
+                int slot = foldedHash(key) & (tableSize - 1);
+                boolean duplicate = false;
+                while (table[slot] != -1) {
+                    if (keys.get(table[slot]).equalsIgnoreCase(key)) {
+                        duplicate = true;
+                        break;
+                    }
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                if (!duplicate) {
+                    table[slot] = keys.size();
+                    keys.add(key);
+                }
+            }
+            return keys.isEmpty() ? index : new KeyIndex(keys.toArray(new String[0]), table);
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        int indexOf(String key) {
+            if (key == null || keys.length == 0) {
+                return -1;
+            }
+            int slot = foldedHash(key) & mask;
+            while (true) {
+                int position = table[slot];
+                if (position == -1) {
+                    return -1;
+                }
+                if (keys[position].equalsIgnoreCase(key)) {
+                    return position;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Hash consistent with {@link String#equalsIgnoreCase(String)}.
+         */
+        private static int foldedHash(String key) {
+            int hash = 0;
+            for (int i = 0; i < key.length(); i++) {
+                hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package games.austale.zonepvpcontrol;
+
+/**
+ * Resolves the {@link ZoneRegistry} id of the zone at a world position.
+ * Implementations are not required to be thread-safe.
+ */
+interface ZoneSampler {
+
+    /**
+     * @param x the world X coordinate
+     * @param z the world Z coordinate
+     * @return the zone id at the position, or {@link ZoneRegistry#NO_ZONE} if none
+     */
+    int sampleZoneId(double x, double z);
+}
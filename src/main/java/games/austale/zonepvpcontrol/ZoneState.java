@@ -0,0 +1,103 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.component.Component;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import java.util.UUID;
+
+/**
+ * Per-player zone and PvP state, stored as an ECS component on player entities so the damage and
+ * death systems can query only entities that carry it and read it straight from the store.
+ */
+public final class ZoneState implements Component<EntityStore> {
+
+    private static ComponentType<EntityStore, ZoneState> componentType;
+
+    int zoneId = ZoneRegistry.NO_ZONE;
+    int groupId = ZoneRegistry.NO_ZONE;
+    // Custom region the player is in, which overrides the zone group; null for none.
+    PvpRegion region;
+    boolean pvpEnabled;
+    // Rules the PvP flag was resolved against, so config changes force a re-resolve.
+    GroupRuleTable groupRules;
+    // Position and world of the last evaluation, used to skip players who have not moved.
+    World lastWorld;
+    double lastX;
+    double lastZ;
+    int pollsSinceEvaluation;
+    // Disc around the last border probe known to be free of PvP borders; negative when a probe is due.
+    double borderX;
+    double borderZ;
+    double borderDistance = -1.0;
+    // Forced refreshes are held back until then, as the player cannot have reached the border sooner.
+    long refreshHoldUntilNanos;
+    // Set while the player is past a PvP border but has not yet stayed there for the dwell time.
+    boolean switchPending;
+    long switchDueNanos;
+    // PvP flag last shown to the player, and whether a notification is queued for the current tick.
+    boolean notifiedPvp;
+    boolean notificationQueued;
+    // Status last published to the zone PvP service and the player it was published for; null when
+    // none is published.
+    ZonePvpStatus publishedStatus;
+    UUID publishedPlayerId;
+    // PvP stays on while the combat tag runs and off while spawn protection runs; on the wheel of the
+    // player's world, world thread only.
+    final TimingWheel.Timer combatTag = new TimingWheel.Timer();
+    final TimingWheel.Timer spawnProtection = new TimingWheel.Timer();
+    // Set when the tick budget ran out before this player could be evaluated.
+    boolean deferred;
+    // Index of this state in the zone trace of its world; -1 until the state is first recorded.
+    int traceId = -1;
+    // When zone tracking last saw this player, used by the stale-state sweep.
+    volatile long lastSeenNanos = System.nanoTime();
+
+    public static ComponentType<EntityStore, ZoneState> getComponentType() {
+        return componentType;
+    }
+
+    static void setComponentType(ComponentType<EntityStore, ZoneState> type) {
+        componentType = type;
+    }
+
+    public boolean isPvpEnabled() {
+        return pvpEnabled;
+    }
+
+    /**
+     * Copy everything zone evaluation reads or writes from another state, leaving notification and
+     * bookkeeping fields alone.
+     */
+    void copyTrackingState(ZoneState from) {
+        zoneId = from.zoneId;
+        groupId = from.groupId;
+        region = from.region;
+        pvpEnabled = from.pvpEnabled;
+        groupRules = from.groupRules;
+        lastWorld = from.lastWorld;
+        lastX = from.lastX;
+        lastZ = from.lastZ;
+        pollsSinceEvaluation = from.pollsSinceEvaluation;
+        borderX = from.borderX;
+        borderZ = from.borderZ;
+        borderDistance = from.borderDistance;
+        refreshHoldUntilNanos = from.refreshHoldUntilNanos;
+        switchPending = from.switchPending;
+        switchDueNanos = from.switchDueNanos;
+    }
+
+    @Override
+    public ZoneState clone() {
+        // Carry the resolved zone over; tracking state restarts so the copy is re-evaluated.
+        ZoneState copy = new ZoneState();
+        copy.zoneId = zoneId;
+        copy.groupId = groupId;
+        copy.region = region;
+        copy.pvpEnabled = pvpEnabled;
+        copy.groupRules = groupRules;
+        copy.notifiedPvp = notifiedPvp;
+        return copy;
+    }
+}
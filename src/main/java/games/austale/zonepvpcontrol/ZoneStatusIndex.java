@@ -0,0 +1,195 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ZonePvpService} backed by one immutable {@link ZonePvpStatus} per tracked player. World
+ * threads republish a player's status only when their zone, region, PvP flag, combat tag or spawn
+ * protection changed, and readers on any thread look statuses up without locking. Each change also
+ * moves the player in the {@link ZoneOccupancyIndex}, atomically with the status so the two never
+ * disagree for long.
+ * <p>
+ * A combat tag restarted by a hit is republished only once its end moved by
+ * {@link #COMBAT_TAG_REPUBLISH_NANOS}, so a fight does not republish both players on every hit;
+ * its published end may trail the plugin's by up to that much.
+ */
+final class ZoneStatusIndex implements ZonePvpService {
+
+    // Shorter than any combat tag, so a tag started after the published one expired always
+    // republishes.
+    static final long COMBAT_TAG_REPUBLISH_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final Map<UUID, ZonePvpStatus> statuses = new ConcurrentHashMap<>();
+    private final ZoneOccupancyIndex occupancy = new ZoneOccupancyIndex();
+    private final ZoneRegistry zoneRegistry;
+
+    ZoneStatusIndex(ZoneRegistry zoneRegistry) {
+        this.zoneRegistry = zoneRegistry;
+    }
+
+    /**
+     * Republish a player's status if it changed since it was last published. World thread only.
+     *
+     * @param playerId the player's UUID
+     * @param state    the player's zone state, just evaluated
+     * @param worldKey the key of the world the player was evaluated in
+     */
+    void publish(UUID playerId, ZoneState state, String worldKey) {
+        ZonePvpStatus published = state.publishedStatus;
+        String zone = zoneRegistry.zoneName(state.zoneId);
+        String region = state.region == null ? null : state.region.getName();
+        long combatTagEnd = endNanos(state.combatTag);
+        long spawnProtectionEnd = endNanos(state.spawnProtection);
+        if (published != null && published.pvpEnabled() == state.pvpEnabled
+                && isSameCombatTag(published.combatTagEndNanos(), combatTagEnd)
+                && published.spawnProtectionEndNanos() == spawnProtectionEnd
+                && Objects.equals(published.zone(), zone) && Objects.equals(published.region(), region)
+                && Objects.equals(published.world(), worldKey)) {
+            return;
+        }
+        ZonePvpStatus status = new ZonePvpStatus(worldKey, zone, zoneRegistry.groupName(state.groupId),
+                state.groupId, region, state.pvpEnabled, combatTagEnd, spawnProtectionEnd);
+        state.publishedStatus = status;
+        state.publishedPlayerId = playerId;
+        statuses.compute(playerId, (id, previous) -> {
+            occupancy.move(id, previous, status);
+            return status;
+        });
+    }
+
+    /**
+     * Republish a player's status after their combat tag or spawn protection started or stopped.
+     * Players without a published status are left alone. World thread only.
+     */
+    void republish(ZoneState state) {
+        ZonePvpStatus published = state.publishedStatus;
+        if (published != null) {
+            publish(state.publishedPlayerId, state, published.world());
+        }
+    }
+
+    /**
+     * Whether a published combat tag end still stands for the current one: equal, or the same tag
+     * restarted by less than {@link #COMBAT_TAG_REPUBLISH_NANOS}.
+     */
+    private static boolean isSameCombatTag(long publishedEnd, long end) {
+        if (publishedEnd == end) {
+            return true;
+        }
+        return publishedEnd != ZonePvpStatus.NOT_RUNNING && end != ZonePvpStatus.NOT_RUNNING
+                && end - publishedEnd > 0L && end - publishedEnd < COMBAT_TAG_REPUBLISH_NANOS;
+    }
+
+    private static long endNanos(TimingWheel.Timer timer) {
+        return timer.isRunning() ? timer.getDeadlineNanos() : ZonePvpStatus.NOT_RUNNING;
+    }
+
+    /**
+     * Withdraw a player's status, unless a newer one was published since the state's.
+     */
+    void remove(UUID playerId, ZoneState state) {
+        ZonePvpStatus published = state.publishedStatus;
+        if (published != null) {
+            withdraw(playerId, published);
+            state.publishedStatus = null;
+            state.publishedPlayerId = null;
+        }
+    }
+
+    void remove(UUID playerId) {
+        withdraw(playerId, null);
+    }
+
+    /**
+     * Withdraw the statuses of all players not among the given ones.
+     */
+    void retainAll(Collection<UUID> playerIds) {
+        for (UUID playerId : statuses.keySet()) {
+            if (!playerIds.contains(playerId)) {
+                withdraw(playerId, null);
+            }
+        }
+    }
+
+    /**
+     * Withdraw a player's status, or only the given one if not null.
+     */
+    private void withdraw(UUID playerId, ZonePvpStatus expected) {
+        statuses.computeIfPresent(playerId, (id, current) -> {
+            if (expected != null && current != expected) {
+                return current;
+            }
+            occupancy.move(id, current, null);
+            return null;
+        });
+    }
+
+    int size() {
+        return statuses.size();
+    }
+
+    @Override
+    public ZonePvpStatus getStatus(UUID playerId) {
+        return playerId == null ? null : statuses.get(playerId);
+    }
+
+    @Override
+    public boolean isPvpEnabled(UUID playerId) {
+        ZonePvpStatus status = getStatus(playerId);
+        return status != null && status.pvpEnabled();
+    }
+
+    @Override
+    public boolean hasPvp(UUID playerId) {
+        ZonePvpStatus status = getStatus(playerId);
+        return status != null && status.hasPvp();
+    }
+
+    @Override
+    public int queryPlayers(UUID[] playerIds, int count, boolean[] pvpEnabled, int[] zoneGroupIds) {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            ZonePvpStatus status = getStatus(playerIds[i]);
+            if (status != null) {
+                found++;
+            }
+            pvpEnabled[i] = status != null && status.pvpEnabled();
+            if (zoneGroupIds != null) {
+                zoneGroupIds[i] = status == null ? NO_ZONE_GROUP : status.zoneGroupId();
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int getPlayerCount(String world, String zoneGroup) {
+        return occupancy.count(world, zoneRegistry.findGroupId(zoneGroup));
+    }
+
+    @Override
+    public List<UUID> getPlayers(String world, String zoneGroup) {
+        return occupancy.players(world, zoneRegistry.findGroupId(zoneGroup));
+    }
+
+    @Override
+    public Set<String> getWorlds() {
+        return occupancy.worlds();
+    }
+
+    @Override
+    public String getZoneGroupName(int zoneGroupId) {
+        return zoneRegistry.groupName(zoneGroupId);
+    }
+
+    @Override
+    public int getZoneGroupCount() {
+        return zoneRegistry.groupCount();
+    }
+}
@@ -0,0 +1,814 @@
+package games.austale.zonepvpcontrol;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records zone tracking and PvP decisions into a binary trace file that can be replayed offline
+ * through the same decision code.
+ * <p>
+ * Each world records two streams: its events (config and rule changes, clock ticks, per-poll
+ * player positions, zone results and damage decisions) on the world thread, and the zone lookups
+ * its evaluator made on the world generator, on whichever thread holds the evaluator. Records are
+ * tagged bytes followed by varints; times, and positions as raw double bits, are stored as deltas
+ * from the previous value, so idle players cost a few bytes per poll. Streams fill pooled
+ * fixed-size chunks that a background writer appends to the file with channel writes, so recording
+ * threads never block or allocate per record. If the writer falls behind or the file reaches its
+ * size limit, recording stops and the trace stays valid up to that point.
+ * <p>
+ * File layout (big-endian): magic and version, then chunks of one stream each as stream id,
+ * length and payload. A stream's records may span its chunks.
+ */
+final class ZoneTraceRecorder {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    static final int MAGIC = 0x5A505654;
+    static final int VERSION = 2;
+    static final int CHUNK_HEADER_BYTES = 8;
+
+    static final byte STREAM_EVENTS = 1;
+    static final byte STREAM_LOOKUPS = 2;
+
+    // Record tags.
+    static final byte START = 1;
+    static final byte CONFIG = 2;
+    static final byte RULES = 3;
+    static final byte CLOCK = 4;
+    static final byte ADVANCE = 5;
+    static final byte ATTACH = 6;
+    static final byte DETACH = 7;
+    static final byte POLL = 8;
+    static final byte RESULT = 9;
+    static final byte BATCH_DROPPED = 10;
+    static final byte HIT = 11;
+    static final byte KILL = 12;
+    static final byte PROTECT = 13;
+    static final byte READY = 14;
+    static final byte RESET = 15;
+    static final byte RASTER = 16;
+    static final byte ZONE = 17;
+    static final byte REGION = 18;
+    static final byte LOOKUP = 19;
+
+    // ATTACH flags.
+    static final int ATTACH_IN_WORLD = 1;
+    static final int ATTACH_RULES_CURRENT = 2;
+    static final int ATTACH_PVP = 4;
+    static final int ATTACH_SWITCH_PENDING = 8;
+    static final int ATTACH_COMBAT_TAG = 16;
+    static final int ATTACH_SPAWN_PROTECTION = 32;
+    // POLL flags.
+    static final int POLL_DUE = 1;
+    static final int POLL_EVALUATED = 2;
+    static final int POLL_BATCHED = 4;
+    static final int POLL_TICK_MODE = 8;
+    // RESULT flags.
+    static final int RESULT_CHANGED = 1;
+    static final int RESULT_PVP = 2;
+    // HIT flags.
+    static final int HIT_ALLOWED = 1;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int CHUNK_POOL = 64;
+    // Room reserved for any record but the strings in it.
+    private static final int MAX_RECORD_BYTES = 192;
+    // Partly filled chunks are handed to the writer after this long.
+    private static final long FLUSH_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final long IDLE_POLL_MILLIS = 200L;
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final ArrayBlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(CHUNK_POOL);
+    private final ArrayBlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(CHUNK_POOL);
+    private final AtomicInteger nextStreamId = new AtomicInteger();
+
+    private volatile boolean recording;
+    private Thread writerThread;
+
+    // Writer-thread state.
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_BYTES);
+    private final ByteBuffer[] chunkWrite = new ByteBuffer[2];
+    private FileChannel channel;
+    private long fileBytes;
+    // Set once a chunk could not be written; later chunks are dropped so no stream has a gap.
+    private boolean full;
+
+    ZoneTraceRecorder(Path file, long maxFileBytes) {
+        this.file = file;
+        this.maxFileBytes = Math.max(CHUNK_BYTES * 4L, maxFileBytes);
+        for (int i = 0; i < CHUNK_POOL; i++) {
+            freeChunks.add(new Chunk());
+        }
+    }
+
+    void start() throws IOException {
+        if (writerThread != null) {
+            return;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            fileBytes += channel.write(header);
+        }
+        recording = true;
+        writerThread = new Thread(this::runWriter, "ZonePVPControl-Trace");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        LOGGER.atInfo().log("Recording zone trace to " + file);
+    }
+
+    /**
+     * Stop recording and close the file once the chunks already handed over are written.
+     */
+    void close() {
+        stop(null);
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(2000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Open the event stream of a world. World thread only, like the returned stream.
+     */
+    WorldTrace openWorld(World world, String worldKey, TimingWheel pvpTimers, ZoneRegistry zoneRegistry,
+                         long nowNanos) {
+        return new WorldTrace(this, world, worldKey, pvpTimers, zoneRegistry, nowNanos);
+    }
+
+    /**
+     * Open the zone lookup stream of a world, to be used by whichever thread holds its evaluator.
+     */
+    LookupTrace openLookups(String worldKey, ZoneRegistry zoneRegistry) {
+        return new LookupTrace(this, worldKey, zoneRegistry);
+    }
+
+    private void stop(String reason) {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        if (reason != null) {
+            LOGGER.atWarning().log("Stopped recording zone trace " + file + ": " + reason);
+        }
+    }
+
+    private Chunk acquire(int streamId) {
+        Chunk chunk = freeChunks.poll();
+        if (chunk == null) {
+            stop("the writer fell behind");
+            return null;
+        }
+        chunk.streamId = streamId;
+        chunk.data.clear();
+        return chunk;
+    }
+
+    private void submit(Chunk chunk) {
+        if (chunk.data.position() == 0 || !filledChunks.offer(chunk)) {
+            freeChunks.offer(chunk);
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (true) {
+                Chunk chunk = filledChunks.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    if (!recording) {
+                        // Streams hand over their last chunk on their next use; give them a moment.
+                        chunk = filledChunks.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (chunk == null) {
+                            break;
+                        }
+                    } else {
+                        continue;
+                    }
+                }
+                write(chunk);
+                freeChunks.offer(chunk);
+            }
+        } catch (IOException ex) {
+            stop("write failed");
+            LOGGER.atWarning().withCause(ex).log("Zone trace writer stopped.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recording = false;
+            closeChannel();
+        }
+    }
+
+    private void write(Chunk chunk) throws IOException {
+        ByteBuffer data = chunk.data.flip();
+        if (full || fileBytes + CHUNK_HEADER_BYTES + data.remaining() > maxFileBytes) {
+            full = true;
+            stop("reached zone_trace_max_file_mb");
+            return;
+        }
+        chunkHeader.clear();
+        chunkHeader.putInt(chunk.streamId).putInt(data.remaining()).flip();
+        chunkWrite[0] = chunkHeader;
+        chunkWrite[1] = data;
+        while (data.hasRemaining()) {
+            fileBytes += channel.write(chunkWrite);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOGGER.atWarning().withCause(ex).log("Failed to close zone trace.");
+        }
+        channel = null;
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer data = ByteBuffer.allocate(CHUNK_BYTES);
+        private int streamId;
+    }
+
+    /**
+     * One stream of the trace, written by one thread at a time.
+     */
+    private abstract static class Stream {
+        private final ZoneTraceRecorder recorder;
+        private final int streamId;
+        private final ZoneRegistry zoneRegistry;
+        private boolean[] declaredZones = new boolean[16];
+        private Chunk chunk;
+        private long chunkStartNanos;
+        private boolean closed;
+
+        Stream(ZoneTraceRecorder recorder, byte kind, String worldKey, ZoneRegistry zoneRegistry) {
+            this.recorder = recorder;
+            this.streamId = recorder.nextStreamId.getAndIncrement();
+            this.zoneRegistry = zoneRegistry;
+            if (begin(0)) {
+                putByte(START);
+                putByte(kind);
+                putString(worldKey == null ? "" : worldKey);
+            }
+        }
+
+        /**
+         * Whether records are still being written, false once the recorder stopped or the stream
+         * was closed.
+         */
+        final boolean isOpen() {
+            if (!closed && !recorder.recording) {
+                close();
+            }
+            return !closed;
+        }
+
+        final boolean isFor(ZoneTraceRecorder recorder) {
+            return this.recorder == recorder;
+        }
+
+        /**
+         * Hand the partly filled chunk to the writer if it has been held for a while.
+         */
+        final void flushIfStale(long nowNanos) {
+            if (chunk != null && nowNanos - chunkStartNanos >= FLUSH_NANOS) {
+                flush();
+            }
+        }
+
+        /**
+         * Hand over what has been recorded and stop recording into this stream.
+         */
+        final void close() {
+            flush();
+            closed = true;
+        }
+
+        /**
+         * Make room for a record of the given size plus {@link #MAX_RECORD_BYTES}.
+         *
+         * @return false if nothing should be recorded
+         */
+        final boolean begin(int extraBytes) {
+            if (!isOpen()) {
+                return false;
+            }
+            if (chunk != null && chunk.data.remaining() >= MAX_RECORD_BYTES + extraBytes) {
+                return true;
+            }
+            flush();
+            return nextChunk();
+        }
+
+        /**
+         * Declare a zone's name before its id is first written to this stream.
+         */
+        final void declareZone(int zoneId) {
+            if (zoneId < 0 || (zoneId < declaredZones.length && declaredZones[zoneId])) {
+                return;
+            }
+            if (zoneId >= declaredZones.length) {
+                declaredZones = Arrays.copyOf(declaredZones, Math.max(zoneId + 1, declaredZones.length * 2));
+            }
+            declaredZones[zoneId] = true;
+            String name = zoneRegistry.zoneName(zoneId);
+            if (begin(0)) {
+                putByte(ZONE);
+                putVarLong(zoneId);
+                putString(name == null ? "" : name);
+            }
+        }
+
+        /**
+         * Declare every zone registered so far, in id order.
+         *
+         * @return the number of zones registered
+         */
+        final int declareZones() {
+            int zoneCount = zoneRegistry.zoneCount();
+            for (int zoneId = 0; zoneId < zoneCount; zoneId++) {
+                declareZone(zoneId);
+            }
+            return zoneCount;
+        }
+
+        /**
+         * Write a zone id, shifted so {@link ZoneRegistry#NO_ZONE} encodes as 0.
+         */
+        final void putZone(int zoneId) {
+            putVarLong(zoneId + 1L);
+        }
+
+        final void putByte(int value) {
+            chunk.data.put((byte) value);
+        }
+
+        final void putLong(long value) {
+            chunk.data.putLong(value);
+        }
+
+        final void putVarLong(long value) {
+            ByteBuffer data = chunk.data;
+            while ((value & ~0x7FL) != 0L) {
+                data.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            data.put((byte) value);
+        }
+
+        final void putZigZag(long value) {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Write a length-prefixed UTF-8 string, continuing into further chunks if needed. Always
+         * the last field of a record.
+         */
+        final void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!chunk.data.hasRemaining()) {
+                    flush();
+                    if (!nextChunk()) {
+                        return;
+                    }
+                }
+                int length = Math.min(chunk.data.remaining(), bytes.length - offset);
+                chunk.data.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private boolean nextChunk() {
+            chunk = recorder.acquire(streamId);
+            if (chunk == null) {
+                closed = true;
+                return false;
+            }
+            chunkStartNanos = System.nanoTime();
+            return true;
+        }
+
+        private void flush() {
+            if (chunk != null) {
+                recorder.submit(chunk);
+                chunk = null;
+            }
+        }
+    }
+
+    /**
+     * Event stream of one world. World thread only.
+     */
+    static final class WorldTrace extends Stream {
+        private final World world;
+        private final TimingWheel pvpTimers;
+        // Recorded states by trace id, with the position each was last recorded at.
+        private ZoneState[] states = new ZoneState[64];
+        private long[] lastXBits = new long[64];
+        private long[] lastZBits = new long[64];
+        private int stateCount;
+        // Ids of detached states, reused before new ones so the tables track players online at once.
+        private int[] freeIds = new int[64];
+        private int freeCount;
+        private final Map<PvpRegion, Integer> regionIds = new IdentityHashMap<>();
+        private ZonePvpControlConfig lastConfig;
+        private GroupRuleTable lastRules;
+        private long clockNanos;
+
+        private WorldTrace(ZoneTraceRecorder recorder, World world, String worldKey, TimingWheel pvpTimers,
+                           ZoneRegistry zoneRegistry, long nowNanos) {
+            super(recorder, STREAM_EVENTS, worldKey, zoneRegistry);
+            this.world = world;
+            this.pvpTimers = pvpTimers;
+            this.clockNanos = nowNanos;
+            if (begin(0)) {
+                putLong(pvpTimers.getOriginNanos());
+                putLong(nowNanos);
+            }
+        }
+
+        /**
+         * Record the config in effect if it changed since it was last recorded.
+         */
+        void config(ZonePvpControlConfig settings) {
+            if (settings == lastConfig || settings == null) {
+                return;
+            }
+            lastConfig = settings;
+            if (begin(0)) {
+                putByte(CONFIG);
+                putString(settings.toJson());
+            }
+        }
+
+        /**
+         * Record a switch to a new rule table, which makes every player's zone be re-resolved. The
+         * table covers the zone groups registered when it was built, so the zones registered by then
+         * are recorded with it.
+         */
+        void rules(GroupRuleTable groupRules) {
+            if (groupRules == lastRules) {
+                return;
+            }
+            lastRules = groupRules;
+            int zoneCount = declareZones();
+            if (begin(0)) {
+                putByte(RULES);
+                putVarLong(zoneCount);
+            }
+        }
+
+        void clock(long nowNanos) {
+            if (nowNanos == clockNanos || !begin(0)) {
+                return;
+            }
+            putByte(CLOCK);
+            putZigZag(nowNanos - clockNanos);
+            clockNanos = nowNanos;
+        }
+
+        /**
+         * Record the PvP timer wheel advancing to the given time.
+         */
+        void advance(long nowNanos) {
+            clock(nowNanos);
+            if (begin(0)) {
+                putByte(ADVANCE);
+            }
+        }
+
+        /**
+         * Record a player handled by zone tracking, at their position, and whether they were due
+         * for evaluation and evaluated now, or snapshotted for evaluation off the world thread.
+         */
+        void poll(ZonePvpControlConfig settings, GroupRuleTable groupRules, ZoneState state, UUID playerId,
+                  double x, double z, int flags, long nowNanos) {
+            if (!isOpen()) {
+                return;
+            }
+            config(settings);
+            rules(groupRules);
+            clock(nowNanos);
+            int id = id(state, playerId);
+            if (!begin(0)) {
+                return;
+            }
+            long xBits = Double.doubleToRawLongBits(x);
+            long zBits = Double.doubleToRawLongBits(z);
+            putByte(POLL);
+            putVarLong(id);
+            putZigZag(xBits - lastXBits[id]);
+            putZigZag(zBits - lastZBits[id]);
+            putByte(flags);
+            lastXBits[id] = xBits;
+            lastZBits[id] = zBits;
+        }
+
+        /**
+         * Record the outcome of a player's zone evaluation once it is applied to their state.
+         */
+        void result(ZoneState state, boolean pvpChanged) {
+            if (!isOpen()) {
+                return;
+            }
+            if (!isRecorded(state)) {
+                // Evaluated before recording started; recording starts from the result.
+                id(state, null);
+                return;
+            }
+            declareZone(state.zoneId);
+            int regionId = regionId(state.region);
+            if (!begin(0)) {
+                return;
+            }
+            putByte(RESULT);
+            putVarLong(state.traceId);
+            putByte((pvpChanged ? RESULT_CHANGED : 0) | (state.pvpEnabled ? RESULT_PVP : 0));
+            putZone(state.zoneId);
+            putVarLong(regionId + 1L);
+        }
+
+        /**
+         * Record that the poll pass snapshotted for evaluation off the world thread was dropped.
+         */
+        void batchDropped() {
+            if (begin(0)) {
+                putByte(BATCH_DROPPED);
+            }
+        }
+
+        /**
+         * Record a PvP damage decision between two players with zone state.
+         */
+        void hit(ZonePvpControlConfig settings, ZoneState attacker, ZoneState target, boolean allowed,
+                 long nowNanos) {
+            if (!isOpen()) {
+                return;
+            }
+            config(settings);
+            clock(nowNanos);
+            int attackerId = id(attacker, null);
+            int targetId = id(target, null);
+            if (begin(0)) {
+                putByte(HIT);
+                putVarLong(attackerId);
+                putVarLong(targetId);
+                putByte(allowed ? HIT_ALLOWED : 0);
+            }
+        }
+
+        /**
+         * Record the drop mode resolved for a player killed by another player.
+         */
+        void kill(ZonePvpControlConfig settings, GroupRuleTable groupRules, ZoneState victim, ZoneState attacker,
+                  ZonePvpControlConfig.PvpDropMode dropMode) {
+            if (!isOpen()) {
+                return;
+            }
+            config(settings);
+            rules(groupRules);
+            int victimId = id(victim, null);
+            int attackerId = id(attacker, null);
+            if (begin(0)) {
+                putByte(KILL);
+                putVarLong(victimId);
+                putVarLong(attackerId);
+                putByte(dropMode.ordinal());
+            }
+        }
+
+        /**
+         * Record spawn protection starting for a player.
+         */
+        void protect(ZonePvpControlConfig settings, ZoneState state, long nowNanos) {
+            if (!isOpen()) {
+                return;
+            }
+            config(settings);
+            clock(nowNanos);
+            int id = id(state, null);
+            if (begin(0)) {
+                putByte(PROTECT);
+                putVarLong(id);
+            }
+        }
+
+        /**
+         * Record a player leaving the world, which stops their PvP timers.
+         */
+        void detach(ZoneState state) {
+            if (!isOpen() || !isRecorded(state)) {
+                return;
+            }
+            int id = state.traceId;
+            states[id] = null;
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = id;
+            if (begin(0)) {
+                putByte(DETACH);
+                putVarLong(id);
+            }
+        }
+
+        /**
+         * Record a player's PvP flag being re-resolved against the current rules as they finish loading.
+         */
+        void ready(ZonePvpControlConfig settings, GroupRuleTable groupRules, ZoneState state) {
+            if (!isOpen()) {
+                return;
+            }
+            config(settings);
+            rules(groupRules);
+            int id = id(state, null);
+            if (begin(0)) {
+                putByte(READY);
+                putVarLong(id);
+            }
+        }
+
+        /**
+         * Record the zone state of every player evaluated in the world being reset.
+         */
+        void reset() {
+            if (begin(0)) {
+                putByte(RESET);
+            }
+        }
+
+        /**
+         * Record a baked zone raster being installed for the world.
+         */
+        void raster(int seed, long fingerprint) {
+            if (begin(0)) {
+                putByte(RASTER);
+                putZigZag(seed);
+                putLong(fingerprint);
+            }
+        }
+
+        private boolean isRecorded(ZoneState state) {
+            int id = state.traceId;
+            return id >= 0 && id < stateCount && states[id] == state;
+        }
+
+        /**
+         * Trace id of a state, recording a snapshot of it the first time it is seen. The id of a
+         * detached state is reused; its DETACH record precedes the ATTACH that reuses it.
+         */
+        private int id(ZoneState state, UUID playerId) {
+            if (isRecorded(state)) {
+                return state.traceId;
+            }
+            int id;
+            if (freeCount > 0) {
+                id = freeIds[--freeCount];
+            } else {
+                id = stateCount++;
+                if (id == states.length) {
+                    states = Arrays.copyOf(states, id * 2);
+                    lastXBits = Arrays.copyOf(lastXBits, id * 2);
+                    lastZBits = Arrays.copyOf(lastZBits, id * 2);
+                }
+            }
+            states[id] = state;
+            state.traceId = id;
+            lastXBits[id] = Double.doubleToRawLongBits(state.lastX);
+            lastZBits[id] = Double.doubleToRawLongBits(state.lastZ);
+            attach(id, state, playerId);
+            return id;
+        }
+
+        private void attach(int id, ZoneState state, UUID playerId) {
+            declareZone(state.zoneId);
+            int regionId = regionId(state.region);
+            if (!begin(0)) {
+                return;
+            }
+            boolean tagged = state.combatTag.isRunning();
+            boolean protectedSpawn = state.spawnProtection.isRunning();
+            putByte(ATTACH);
+            putVarLong(id);
+            putLong(playerId == null ? 0L : playerId.getMostSignificantBits());
+            putLong(playerId == null ? 0L : playerId.getLeastSignificantBits());
+            putByte((state.lastWorld == world ? ATTACH_IN_WORLD : 0)
+                    | (lastRules != null && state.groupRules == lastRules ? ATTACH_RULES_CURRENT : 0)
+                    | (state.pvpEnabled ? ATTACH_PVP : 0)
+                    | (state.switchPending ? ATTACH_SWITCH_PENDING : 0)
+                    | (tagged ? ATTACH_COMBAT_TAG : 0)
+                    | (protectedSpawn ? ATTACH_SPAWN_PROTECTION : 0));
+            putZone(state.zoneId);
+            putVarLong(regionId + 1L);
+            putLong(lastXBits[id]);
+            putLong(lastZBits[id]);
+            putVarLong(state.pollsSinceEvaluation);
+            putLong(Double.doubleToRawLongBits(state.borderX));
+            putLong(Double.doubleToRawLongBits(state.borderZ));
+            putLong(Double.doubleToRawLongBits(state.borderDistance));
+            putZigZag(state.refreshHoldUntilNanos - clockNanos);
+            putZigZag(state.switchDueNanos - clockNanos);
+            if (tagged) {
+                putZigZag(pvpTimers.deadlineNanos(state.combatTag) - clockNanos);
+            }
+            if (protectedSpawn) {
+                putZigZag(pvpTimers.deadlineNanos(state.spawnProtection) - clockNanos);
+            }
+        }
+
+        /**
+         * Trace id of a region, declaring its name the first time it is seen; -1 for none.
+         */
+        private int regionId(PvpRegion region) {
+            if (region == null) {
+                return -1;
+            }
+            Integer id = regionIds.get(region);
+            if (id != null) {
+                return id;
+            }
+            int next = regionIds.size();
+            regionIds.put(region, next);
+            if (begin(0)) {
+                putByte(REGION);
+                putVarLong(next);
+                putString(region.getName() == null ? "" : region.getName());
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Zone lookup stream of one world: every zone the world generator returned, with the position
+     * it was sampled at. Used by one thread at a time, like the world's evaluator.
+     */
+    static final class LookupTrace extends Stream {
+        private long lastXBits;
+        private long lastZBits;
+
+        private LookupTrace(ZoneTraceRecorder recorder, String worldKey, ZoneRegistry zoneRegistry) {
+            super(recorder, STREAM_LOOKUPS, worldKey, zoneRegistry);
+        }
+
+        void lookup(double x, double z, int zoneId) {
+            declareZone(zoneId);
+            if (!begin(0)) {
+                return;
+            }
+            long xBits = Double.doubleToRawLongBits(x);
+            long zBits = Double.doubleToRawLongBits(z);
+            putByte(LOOKUP);
+            putZigZag(xBits - lastXBits);
+            putZigZag(zBits - lastZBits);
+            putZone(zoneId);
+            lastXBits = xBits;
+            lastZBits = zBits;
+        }
+
+        /**
+         * Record the cells already in a lookup cache, as if each had just been sampled at its center.
+         */
+        void lookups(ZoneLookupCache cache) {
+            for (int slot = 0; slot < cache.size(); slot++) {
+                long cellKey = cache.slotKey(slot);
+                lookup(cache.cellCenterX(cellKey), cache.cellCenterZ(cellKey), cache.slotZoneId(slot));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package games.austale.zonepvpcontrol;
+
+import java.util.Collection;
+
+/**
+ * Scheduling of one world's zone tracking: the poll pass handed out in round-robin slices under
+ * the per-world time budget, and the per-tick evaluation budget with deferral in TICK mode. Kept
+ * free of entity and world access so the load simulator drives the same logic as the plugin.
+ * World thread only.
+ *
+ * @param <P> the player handle snapshotted into poll passes
+ */
+final class ZoneTrackingSchedule<P> {
+
+    // Players handled between checks of the time budget.
+    private static final int BUDGET_CHECK_INTERVAL = 8;
+
+    /**
+     * A due player is evaluated this tick.
+     */
+    static final int ADMITTED = 0;
+    /**
+     * A due player is over this tick's budget and goes first on the next.
+     */
+    static final int DEFERRED = 1;
+    /**
+     * A due player waits because the rest of this tick's budget is held for players deferred on the
+     * previous tick.
+     */
+    static final int WAITING = 2;
+
+    // Poll pass in progress in POLL mode: players snapshotted at its start, handled a slice per tick.
+    private Object[] passPlayers = new Object[0];
+    private int passSize;
+    private int passCursor;
+    private long passStartNanos;
+
+    // Per-tick evaluation budget in TICK mode.
+    private int tickBudgetRemaining = Integer.MAX_VALUE;
+    private int deferredThisTick;
+    private int deferredLastTick;
+    // Players deferred on the previous tick that have come up for admission this tick.
+    private int deferredSeen;
+    private long tickStartNanos;
+
+    /**
+     * @param nowNanos the current {@link System#nanoTime()}, as the start of the first pass and tick
+     */
+    ZoneTrackingSchedule(long nowNanos) {
+        this.passStartNanos = nowNanos;
+        this.tickStartNanos = nowNanos;
+    }
+
+    /**
+     * Whether players of the current poll pass remain to be handled.
+     */
+    boolean hasPendingPass() {
+        return passCursor < passSize;
+    }
+
+    /**
+     * Whether a new poll pass is due: the previous one has finished and its interval has elapsed.
+     */
+    boolean isPassDue(long nowNanos, long intervalNanos) {
+        return !hasPendingPass() && nowNanos - passStartNanos >= intervalNanos;
+    }
+
+    /**
+     * Start a poll pass over a snapshot of the world's players.
+     */
+    void startPass(Collection<? extends P> players, long nowNanos) {
+        // Handled entries are cleared as the pass goes, so the reused array holds no departed players.
+        passPlayers = players.toArray(passPlayers);
+        passSize = players.size();
+        passCursor = 0;
+        passStartNanos = nowNanos;
+    }
+
+    /**
+     * Number of players to handle this tick so the rest of the pass spreads evenly over the ticks
+     * left before the pass interval ends, or everything left once the interval is over.
+     */
+    int passSliceQuota(long nowNanos, long intervalNanos, long tickNanos) {
+        int remaining = passSize - passCursor;
+        long ticksLeft = (passStartNanos + intervalNanos - nowNanos) / Math.max(1L, tickNanos);
+        if (ticksLeft <= 1L) {
+            return remaining;
+        }
+        return (int) Math.min(remaining, (remaining + ticksLeft - 1) / ticksLeft);
+    }
+
+    @SuppressWarnings("unchecked")
+    P nextPassPlayer() {
+        P player = (P) passPlayers[passCursor];
+        passPlayers[passCursor++] = null;
+        return player;
+    }
+
+    /**
+     * Whether a slice has used up its time budget. The clock is only read every few players.
+     *
+     * @param handled     players handled so far in the slice
+     * @param startNanos  when the slice started
+     * @param budgetNanos the slice's time budget
+     */
+    static boolean isOutOfTime(int handled, long startNanos, long budgetNanos) {
+        return handled % BUDGET_CHECK_INTERVAL == BUDGET_CHECK_INTERVAL - 1
+                && System.nanoTime() - startNanos >= budgetNanos;
+    }
+
+    /**
+     * Start a new world tick with the given evaluation budget; a budget of 0 or less is unlimited.
+     */
+    void beginTick(int budget, long nowNanos) {
+        tickBudgetRemaining = budget <= 0 ? Integer.MAX_VALUE : budget;
+        deferredLastTick = deferredThisTick;
+        deferredThisTick = 0;
+        deferredSeen = 0;
+        tickStartNanos = nowNanos;
+    }
+
+    /**
+     * When the current tick started, used as a coarse clock for per-player bookkeeping.
+     */
+    long getTickStartNanos() {
+        return tickStartNanos;
+    }
+
+    /**
+     * Admit a player due this tick against the tick budget. Budget is held back for the players
+     * deferred on the previous tick that have not come up yet, so none are starved; other players
+     * are admitted from what is left over, so the budget is not left idle while they catch up.
+     *
+     * @param deferred whether the player was deferred on the previous tick
+     * @return {@link #ADMITTED}, {@link #DEFERRED} or {@link #WAITING}
+     */
+    int admitDue(boolean deferred) {
+        if (deferred) {
+            deferredSeen++;
+        } else {
+            int reserved = deferredLastTick - deferredSeen;
+            if (reserved > 0 && tickBudgetRemaining <= reserved) {
+                return WAITING;
+            }
+        }
+        if (tickBudgetRemaining <= 0) {
+            deferredThisTick++;
+            return DEFERRED;
+        }
+        tickBudgetRemaining--;
+        return ADMITTED;
+    }
+}
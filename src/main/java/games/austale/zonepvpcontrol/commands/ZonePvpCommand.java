@@ -0,0 +1,34 @@
+package games.austale.zonepvpcontrol.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import games.austale.zonepvpcontrol.ZonePVPControl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admin command root, {@code /zonepvp}.
+ */
+public class ZonePvpCommand extends AbstractCommand {
+
+    static final String ADMIN_PERMISSION = "zonepvpcontrol.admin";
+
+    public ZonePvpCommand(ZonePVPControl plugin) {
+        super("zonepvp", "ZonePVPControl admin commands");
+        requirePermission(ADMIN_PERMISSION);
+        addSubCommand(new ZonePvpStatsCommand(plugin));
+        addSubCommand(new ZonePvpReloadCommand(plugin));
+        addSubCommand(new ZonePvpZonesCommand());
+    }
+
+    @Nullable
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        context.sendMessage(Message.raw("Usage: /zonepvp <stats|reload|zones>"));
+        return CompletableFuture.completedFuture(null);
+    }
+
+}
@@ -0,0 +1,31 @@
+package games.austale.zonepvpcontrol.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import games.austale.zonepvpcontrol.ZonePVPControl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@code /zonepvp reload}: re-read the config file, keeping the current config if it is invalid.
+ */
+public class ZonePvpReloadCommand extends AbstractCommand {
+
+    private final ZonePVPControl plugin;
+
+    public ZonePvpReloadCommand(ZonePVPControl plugin) {
+        super("reload", "Reload the ZonePVPControl config");
+        requirePermission(ZonePvpCommand.ADMIN_PERMISSION);
+        this.plugin = plugin;
+    }
+
+    @Nullable
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        return plugin.reloadConfig().thenAccept(outcome -> context.sendMessage(Message.raw(outcome)));
+    }
+
+}
@@ -0,0 +1,110 @@
+package games.austale.zonepvpcontrol.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import games.austale.zonepvpcontrol.ZonePVPControl;
+import games.austale.zonepvpcontrol.ZonePvpMetrics;
+import games.austale.zonepvpcontrol.util.LatencyHistogram;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@code /zonepvp stats}: rates and zone tracking cost since the previous invocation (or since the
+ * plugin started), so repeated calls show current behavior rather than lifetime averages.
+ */
+public class ZonePvpStatsCommand extends AbstractCommand {
+
+    private final ZonePVPControl plugin;
+
+    // Metrics as of the previous report; guarded by this.
+    private long lastReportNanos = System.nanoTime();
+    private long[] lastCounters = new long[ZonePvpMetrics.Counter.values().length];
+    private Map<String, long[]> lastTrackingTimes = new HashMap<>();
+    private Map<String, Long> lastTrackingNanos = new HashMap<>();
+
+    public ZonePvpStatsCommand(ZonePVPControl plugin) {
+        super("stats", "Show ZonePVPControl performance stats");
+        requirePermission(ZonePvpCommand.ADMIN_PERMISSION);
+        this.plugin = plugin;
+    }
+
+    @Nullable
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        for (String line : report()) {
+            context.sendMessage(Message.raw(line));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private synchronized String[] report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastReportNanos) / 1e9);
+        long[] counters = plugin.getMetrics().snapshot();
+        Map<String, LatencyHistogram> trackingTimes = plugin.getTrackingTimesByWorld();
+        Map<String, long[]> histograms = new HashMap<>();
+        Map<String, Long> trackingNanos = new HashMap<>();
+
+        StringBuilder lines = new StringBuilder();
+        lines.append(String.format(Locale.ROOT, "ZonePVPControl stats over the last %.1f s:", seconds));
+        for (Map.Entry<String, LatencyHistogram> entry : trackingTimes.entrySet()) {
+            String world = entry.getKey();
+            long[] counts = entry.getValue().snapshot();
+            long totalNanos = entry.getValue().getTotalNanos();
+            histograms.put(world, counts);
+            trackingNanos.put(world, totalNanos);
+
+            long[] window = subtract(counts, lastTrackingTimes.get(world));
+            long ticks = 0L;
+            for (long count : window) {
+                ticks += count;
+            }
+            long windowNanos = totalNanos - lastTrackingNanos.getOrDefault(world, 0L);
+            lines.append('\n').append(String.format(Locale.ROOT,
+                    "World %s: %d ticks tracked, p50 %.3f ms, p99 %.3f ms, %.3f%% of world thread time",
+                    world, ticks,
+                    LatencyHistogram.percentile(window, 50.0) / 1e6,
+                    LatencyHistogram.percentile(window, 99.0) / 1e6,
+                    windowNanos / (seconds * 1e7)));
+        }
+        for (ZonePvpMetrics.Counter counter : ZonePvpMetrics.Counter.values()) {
+            long total = counters[counter.ordinal()];
+            long delta = total - lastCounters[counter.ordinal()];
+            lines.append('\n').append(String.format(Locale.ROOT, "%s: %.1f/s (%d total)",
+                    capitalize(counter.getLabel()), delta / seconds, total));
+        }
+        String auditLog = plugin.describeAuditLog();
+        if (auditLog != null) {
+            lines.append('\n').append("PvP audit log: ").append(auditLog);
+        }
+        lines.append('\n').append("Live state: ").append(plugin.getLiveStateCounts());
+
+        lastReportNanos = now;
+        lastCounters = counters;
+        lastTrackingTimes = histograms;
+        lastTrackingNanos = trackingNanos;
+        return lines.toString().split("\n");
+    }
+
+    private static long[] subtract(long[] current, long[] previous) {
+        if (previous == null) {
+            return current;
+        }
+        long[] delta = new long[current.length];
+        for (int i = 0; i < current.length; i++) {
+            delta[i] = current[i] - previous[i];
+        }
+        return delta;
+    }
+
+    private static String capitalize(String label) {
+        return Character.toUpperCase(label.charAt(0)) + label.substring(1);
+    }
+
+}
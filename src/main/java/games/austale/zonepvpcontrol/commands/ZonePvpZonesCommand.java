@@ -0,0 +1,79 @@
+package games.austale.zonepvpcontrol.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import games.austale.zonepvpcontrol.ZonePVPControl;
+import games.austale.zonepvpcontrol.ZonePvpService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@code /zonepvp zones}: how many players are in each zone group of each world, and who they are.
+ */
+public class ZonePvpZonesCommand extends AbstractCommand {
+
+    // Players named per zone group before the rest are only counted.
+    private static final int MAX_LISTED_PLAYERS = 10;
+
+    public ZonePvpZonesCommand() {
+        super("zones", "Show players per zone group");
+        requirePermission(ZonePvpCommand.ADMIN_PERMISSION);
+    }
+
+    @Nullable
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        ZonePvpService service = ZonePVPControl.getService();
+        if (service == null) {
+            context.sendMessage(Message.raw("ZonePVPControl is not running."));
+            return CompletableFuture.completedFuture(null);
+        }
+        boolean empty = true;
+        for (String world : new TreeSet<>(service.getWorlds())) {
+            for (int groupId = 0; groupId < service.getZoneGroupCount(); groupId++) {
+                String group = service.getZoneGroupName(groupId);
+                // Most world and group pairs are empty; counting them does not copy a player list.
+                if (service.getPlayerCount(world, group) == 0) {
+                    continue;
+                }
+                List<UUID> players = service.getPlayers(world, group);
+                if (players.isEmpty()) {
+                    continue;
+                }
+                empty = false;
+                context.sendMessage(Message.raw("World " + world + ", " + group + ": " + players.size()
+                        + " (" + describePlayers(players) + ")"));
+            }
+        }
+        if (empty) {
+            context.sendMessage(Message.raw("No players are in a tracked zone."));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String describePlayers(List<UUID> players) {
+        Universe universe = Universe.get();
+        StringBuilder names = new StringBuilder();
+        int listed = Math.min(players.size(), MAX_LISTED_PLAYERS);
+        for (int i = 0; i < listed; i++) {
+            PlayerRef player = universe.getPlayer(players.get(i));
+            if (i > 0) {
+                names.append(", ");
+            }
+            names.append(player == null || player.getUsername() == null ? players.get(i) : player.getUsername());
+        }
+        if (players.size() > listed) {
+            names.append(", and ").append(players.size() - listed).append(" more");
+        }
+        return names.toString();
+    }
+
+}
@@ -0,0 +1,73 @@
+package games.austale.zonepvpcontrol.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves optional no-argument accessors on server types that differ between builds.
+ * <p>
+ * Each accessor is looked up once per runtime class and cached as a {@link MethodHandle}, or as a
+ * handle returning null when the class has no such public method, so repeated calls neither scan
+ * method arrays nor allocate.
+ */
+public final class Capabilities {
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+    // Shared handle for missing accessors; always returns null.
+    private static final MethodHandle ABSENT = MethodHandles.dropArguments(
+            MethodHandles.constant(Object.class, null), 0, Object.class);
+
+    private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private Capabilities() {
+    }
+
+    /**
+     * Invoke a public no-argument method on a target if its class has one.
+     *
+     * @param target     the object to call, may be null
+     * @param methodName the method name
+     * @return the method's result, or null if the target is null, the method is absent or it threw
+     */
+    public static Object invoke(Object target, String methodName) {
+        if (target == null) {
+            return null;
+        }
+        MethodHandle accessor = accessor(target.getClass(), methodName);
+        if (accessor == ABSENT) {
+            return null;
+        }
+        try {
+            return accessor.invokeExact(target);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private static MethodHandle accessor(Class<?> type, String methodName) {
+        Map<String, MethodHandle> accessors = ACCESSORS.get(type);
+        MethodHandle accessor = accessors.get(methodName);
+        if (accessor == null) {
+            accessor = accessors.computeIfAbsent(methodName, name -> resolve(type, name));
+        }
+        return accessor;
+    }
+
+    private static MethodHandle resolve(Class<?> type, String methodName) {
+        try {
+            Method method = type.getMethod(methodName);
+            return MethodHandles.publicLookup().unreflect(method).asType(ACCESSOR_TYPE);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            return ABSENT;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package games.austale.zonepvpcontrol.util;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 
 import java.io.File;
-import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -49,17 +48,12 @@ public final class DataPaths {
         if (plugin == null) {
             return null;
         }
-        try {
-            Method method = plugin.getClass().getMethod(methodName);
-            Object result = method.invoke(plugin);
-            if (result instanceof Path path) {
-                return path;
-            }
-            if (result instanceof File file) {
-                return file.toPath();
-            }
-        } catch (Exception ignored) {
-            // ignore and fall back
+        Object result = Capabilities.invoke(plugin, methodName);
+        if (result instanceof Path path) {
+            return path;
+        }
+        if (result instanceof File file) {
+            return file.toPath();
         }
         return null;
     }